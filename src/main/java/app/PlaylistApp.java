@@ -1,9 +1,13 @@
 package app;
 
 import business.Song;
+import utils.DeltaMerger;
 import utils.Playlist;
 import utils.SongFileUtils;
+import utils.SongIngestPipeline;
+import utils.SongRenderer;
 
+import java.io.IOException;
 import java.util.Scanner;
 
 //PlaylistApp is a console menu application for interacting with a Playlist.
@@ -19,6 +23,8 @@ public class PlaylistApp {
 
         // Load initial playlist using the lecturer-provided file reader
         Playlist playlist = loadInitialPlaylist(scanner);
+        // Remembers merged lines across delta merges of this session
+        DeltaMerger deltaMerger = new DeltaMerger(playlist);
 
         boolean running = true;
         while (running) {
@@ -48,7 +54,7 @@ public class PlaylistApp {
                     displayMostPopularSong(playlist);
                     break;
                 case "8":
-                    mergeSongsFromFile(scanner, playlist);
+                    mergeSongsFromFile(scanner, playlist, deltaMerger);
                     break;
                 case "9":
                     running = false;
@@ -117,17 +123,13 @@ public class PlaylistApp {
             return;
         }
 
-        //print each song
-        for (int i = 0; i < songs.length; i++) {
-            Song s = songs[i];
-            System.out.println("Song #" + (i + 1));
-            if (s == null) {
-                System.out.println("(null)");
-            } else {
-                System.out.println(s.format());
-            }
-            System.out.println("---------------------------");
+        //print all songs in one pass
+        try {
+            SongRenderer.renderNumbered(System.out, songs, "Song #");
+        } catch (IOException e) {
+            System.out.println("Could not display songs: " + e.getMessage());
         }
+        System.out.flush();
     }
 
     /**
@@ -170,9 +172,12 @@ public class PlaylistApp {
         }
 
         System.out.println("Unique tags:");
-        for (int i = 0; i < tags.length; i++) {
-            System.out.println("- " + tags[i]);
+        try {
+            SongRenderer.renderList(System.out, tags, "- ");
+        } catch (IOException e) {
+            System.out.println("Could not display tags: " + e.getMessage());
         }
+        System.out.flush();
     }
 
     /**
@@ -207,16 +212,14 @@ public class PlaylistApp {
             return;
         }
 
-        // Print matching songs
+        // Print matching songs in one pass
         System.out.println("Matches:");
-        for (int i = 0; i < matches.length; i++) {
-            Song s = matches[i];
-            System.out.println("Match #" + (i + 1));
-            if (s != null) {
-                System.out.println(s.format());
-            }
-            System.out.println("---------------------------");
+        try {
+            SongRenderer.renderNumbered(System.out, matches, "Match #");
+        } catch (IOException e) {
+            System.out.println("Could not display matches: " + e.getMessage());
         }
+        System.out.flush();
     }
 
     /**
@@ -292,11 +295,14 @@ public class PlaylistApp {
 
     /**
      * Loads songs from a file and merges them into the current playlist.
+     * A full merge appends every new song; a delta merge also updates ratings, genres and tags of
+     * songs already present, and skips lines unchanged since the last delta merge.
      *
      * @param scanner scanner for input
      * @param playlist playlist to modify
+     * @param deltaMerger merger used for delta merges
      */
-    private static void mergeSongsFromFile(Scanner scanner, Playlist playlist) {
+    private static void mergeSongsFromFile(Scanner scanner, Playlist playlist, DeltaMerger deltaMerger) {
 
         System.out.print("Enter filename to load songs from: ");
         // Read file name
@@ -306,26 +312,44 @@ public class PlaylistApp {
             return;
         }
 
-        // Read songs from file
-        Song[] newSongs = SongFileUtils.readSongFile(file);
-        if (newSongs == null || newSongs.length == 0) {
-            System.out.println("No songs loaded from file.");
+        System.out.print("Merge mode - (f)ull or (d)elta (blank for full): ");
+        String mode = scanner.nextLine().trim().toLowerCase();
+        if (mode.startsWith("d")) {
+            DeltaMerger.Result delta;
+            try {
+                delta = deltaMerger.merge(file);
+            } catch (IOException e) {
+                System.out.println("Could not merge songs from file: " + e.getMessage());
+                return;
+            }
+            System.out.println("Delta merge done: " + delta + ".");
             return;
         }
 
-        // Show the loaded songs (useful for checking what was read)
-        System.out.println("Loaded songs:");
-        for (int i = 0; i < newSongs.length; i++) {
-            Song s = newSongs[i];
-            if (s != null) {
-                System.out.println(s.format());
-                System.out.println("---------------------------");
+        // Stream the file through the staged loader; it reports counters instead of echoing every song
+        SongIngestPipeline pipeline = new SongIngestPipeline(playlist);
+        long[] lastReport = {System.currentTimeMillis()};
+        pipeline.setProgressListener(progress -> {
+            long now = System.currentTimeMillis();
+            if (now - lastReport[0] >= 1000) { // at most one progress line per second
+                lastReport[0] = now;
+                System.out.println("Merging... " + progress);
             }
+        });
+
+        SongIngestPipeline.Progress result;
+        try {
+            result = pipeline.run(file);
+        } catch (IOException e) {
+            System.out.println("Could not merge songs from file: " + e.getMessage());
+            return;
         }
 
-        // Add them to the existing playlist
-        playlist.addSongs(newSongs);
-        System.out.println("Songs merged into playlist.");
+        if (result.getCommitted() == 0) {
+            System.out.println("No new songs loaded from file (" + result + ").");
+            return;
+        }
+        System.out.println("Songs merged into playlist: " + result + ".");
     }
 
     /**
@@ -0,0 +1,157 @@
+package app;
+
+import business.Song;
+import utils.LazySongFile;
+import utils.Playlist;
+import utils.SongFileAnalytics;
+import utils.SongFileUtils;
+import utils.SongRenderer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-interactive entry point for scripts: loads a song file, runs the requested operations and exits.
+ *
+ * Usage: PlaylistCli [--timing] file operation...
+ * where each operation is "search TAG", "top-rated", "tags" or "stats".
+ *
+ * Nothing is echoed while loading. search and top-rated work on a LazySongFile, so only the songs
+ * they print are ever parsed; tags loads the songs into a Playlist, whose secondary indexes are
+ * not built because no operation here needs them. stats streams the file through SongFileAnalytics
+ * and never creates Songs.
+ * With --timing, the time from JVM start to the first printed result is reported on stderr.
+ */
+public class PlaylistCli {
+    private static final int CACHE_SIZE = 1024; // parsed songs kept by the lazy file
+    private static final int TOP_TAGS = 10; // tags listed by stats
+
+    /**
+     * Entry point of the program.
+     *
+     * @param args [--timing] file operation...
+     */
+    public static void main(String[] args) {
+        long mainStarted = System.nanoTime();
+        int first = 0;
+        boolean timing = false;
+        if (args.length > 0 && args[0].equals("--timing")) {
+            timing = true;
+            first = 1;
+        }
+        if (args.length - first < 2) {
+            usage();
+            System.exit(2);
+        }
+
+        String file = args[first];
+        PrintStream out = System.out;
+        LazySongFile lazy = null;
+        Playlist playlist = null;
+        boolean reported = !timing;
+        try {
+            int i = first + 1;
+            while (i < args.length) {
+                String op = args[i++];
+                switch (op) {
+                    case "search":
+                        if (i == args.length) {
+                            usage();
+                            System.exit(2);
+                        }
+                        if (lazy == null) lazy = LazySongFile.open(file, CACHE_SIZE);
+                        String tag = args[i++];
+                        Song[] matches = lazy.searchByTag(tag);
+                        if (matches.length == 0) {
+                            out.println("No songs found with tag: " + tag);
+                        } else {
+                            SongRenderer.renderNumbered(out, matches, "Match #");
+                        }
+                        break;
+                    case "top-rated":
+                        if (lazy == null) lazy = LazySongFile.open(file, CACHE_SIZE);
+                        Song best = lazy.findMostPopular();
+                        out.println(best == null ? "No songs available." : best.format());
+                        break;
+                    case "tags":
+                        if (playlist == null) playlist = new Playlist(SongFileUtils.loadSongFile(file));
+                        String[] tags = playlist.getAllTags();
+                        if (tags.length == 0) {
+                            out.println("No tags found.");
+                        } else {
+                            SongRenderer.renderList(out, tags, "- ");
+                        }
+                        break;
+                    case "stats":
+                        printStats(out, SongFileAnalytics.analyze(List.of(Paths.get(file))));
+                        break;
+                    default:
+                        System.err.println("Unknown operation: " + op);
+                        usage();
+                        System.exit(2);
+                }
+                out.flush();
+                if (!reported) { // first result is out
+                    reportTiming(mainStarted);
+                    reported = true;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ": " + e.getMessage());
+            System.exit(1);
+        } finally {
+            if (lazy != null) {
+                try {
+                    lazy.close();
+                } catch (IOException ignored) {
+                    // exiting anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints song counts, rating summary and histogram, songs per genre and the most used tags.
+     */
+    private static void printStats(PrintStream out, SongFileAnalytics.Report report) {
+        out.println("Songs: " + report.getSongs() + " (" + report.getMalformed() + " malformed lines skipped)");
+        out.println("Ratings: " + report.getRatingStats());
+        long[] histogram = report.getRatingHistogram();
+        double width = (SongFileAnalytics.DEFAULT_MAX_RATING - SongFileAnalytics.DEFAULT_MIN_RATING) / histogram.length;
+        for (int b = 0; b < histogram.length; b++) {
+            double from = SongFileAnalytics.DEFAULT_MIN_RATING + b * width;
+            out.printf("  %.1f-%.1f: %d%n", from, from + width, histogram[b]);
+        }
+        out.println("Songs per genre:");
+        for (Map.Entry<String, Long> e : report.getSongsPerGenre().entrySet()) {
+            out.println("  " + e.getKey() + ": " + e.getValue());
+        }
+        out.println("Most used tags:");
+        Map<String, Long> tagCounts = report.getTagCounts();
+        for (String tag : report.topTags(TOP_TAGS)) {
+            out.println("  " + tag + ": " + tagCounts.get(tag));
+        }
+    }
+
+    /**
+     * Prints how long the first result took, from JVM start and from main.
+     * The management classes are only loaded here, after the result, and the time
+     * they take is subtracted from the uptime.
+     */
+    private static void reportTiming(long mainStarted) {
+        long resultAt = System.nanoTime();
+        long inMain = (resultAt - mainStarted) / 1_000_000;
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        long sinceStart = uptime - (System.nanoTime() - resultAt) / 1_000_000;
+        System.err.println("time to first result: " + sinceStart + " ms since JVM start (" + inMain + " ms in main)");
+    }
+
+    private static void usage() {
+        System.err.println("usage: PlaylistCli [--timing] file operation...");
+        System.err.println("operations: search TAG | top-rated | tags | stats");
+    }
+}
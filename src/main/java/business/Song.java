@@ -4,6 +4,13 @@ import java.util.Arrays;
 import java.util.Objects;
 
 public class Song {
+    /**
+     * Fields whose changes are reported to listeners.
+     */
+    public enum Field {
+        TITLE, ARTIST, ALBUM, RATING, GENRE, TAG_COUNT
+    }
+
     private String title;
     private String artist;
     private String album;
@@ -11,6 +18,8 @@ public class Song {
     private String genre;
     private String [] tags;
     private int tagCount;
+    private SongListener[] listeners; // null until someone registers
+    private int modCount; // bumped on every change after construction
 
     public Song(String title, String artist, String album,
                 double rating, String genre, String[] initialTags) {
@@ -39,6 +48,7 @@ public class Song {
                 addTag(initialTags[i]);
             }
         }
+        this.modCount = 0; // initial tags are not modifications
     }
 
     public String getTitle() {
@@ -46,7 +56,10 @@ public class Song {
     }
 
     public void setTitle(String title) {
+        String old = this.title;
         this.title = title;
+        modCount++;
+        if (listeners != null) fireChanged(Field.TITLE, old);
     }
 
     public String getArtist() {
@@ -54,7 +67,10 @@ public class Song {
     }
 
     public void setArtist(String artist) {
+        String old = this.artist;
         this.artist = artist;
+        modCount++;
+        if (listeners != null) fireChanged(Field.ARTIST, old);
     }
 
     public String getAlbum() {
@@ -62,7 +78,10 @@ public class Song {
     }
 
     public void setAlbum(String album) {
+        String old = this.album;
         this.album = album;
+        modCount++;
+        if (listeners != null) fireChanged(Field.ALBUM, old);
     }
 
     public double getRating() {
@@ -70,7 +89,10 @@ public class Song {
     }
 
     public void setRating(double rating) {
+        double old = this.rating;
         this.rating = rating;
+        modCount++;
+        if (listeners != null) fireChanged(Field.RATING, old);
     }
 
     public String getGenre() {
@@ -78,7 +100,10 @@ public class Song {
     }
 
     public void setGenre(String genre) {
+        String old = this.genre;
         this.genre = genre;
+        modCount++;
+        if (listeners != null) fireChanged(Field.GENRE, old);
     }
 
     public String[] getTags() {
@@ -92,7 +117,77 @@ public class Song {
     }
 
     public void setTagCount(int tagCount) {
+        int old = this.tagCount;
         this.tagCount = tagCount;
+        modCount++;
+        if (listeners != null) fireChanged(Field.TAG_COUNT, old);
+    }
+
+    /**
+     * Number of changes made through setters and addTag since construction.
+     * Callers can cache anything derived from this song and recompute only when the count moves.
+     *
+     * @return modification count
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Registers a listener for field changes. Registering the same listener twice has no effect.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(SongListener listener) {
+        if (listener == null) return;
+        if (listeners == null) {
+            listeners = new SongListener[]{listener};
+            return;
+        }
+        for (SongListener l : listeners) {
+            if (l == listener) return; // already registered
+        }
+        SongListener[] grown = new SongListener[listeners.length + 1];
+        for (int i = 0; i < listeners.length; i++) {
+            grown[i] = listeners[i];
+        }
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener listener to remove
+     * @return true if it was registered
+     */
+    public boolean removeListener(SongListener listener) {
+        if (listeners == null) return false;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    listeners = null;
+                    return true;
+                }
+                SongListener[] shrunk = new SongListener[listeners.length - 1];
+                int k = 0;
+                for (int j = 0; j < listeners.length; j++) {
+                    if (j != i) shrunk[k++] = listeners[j];
+                }
+                listeners = shrunk;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void fireChanged(Field field, Object oldValue) {
+        // Listener array is replaced, never modified in place, so iterating a local copy is safe
+        SongListener[] current = listeners;
+        if (current == null) return;
+        for (SongListener l : current) {
+            l.songChanged(this, field, oldValue);
+        }
     }
 
     @Override
@@ -140,6 +235,7 @@ public class Song {
         if (tagCount == 0) {
             tags[0] = newTag;
             tagCount = 1;
+            tagInserted(newTag);
             return true;
         }
 
@@ -177,9 +273,19 @@ public class Song {
         tags[insertIdx] = newTag;
         // Increment tag count
         tagCount++;
+        tagInserted(newTag);
         return true;
     }
 
+    private void tagInserted(String tag) {
+        modCount++;
+        SongListener[] current = listeners;
+        if (current == null) return;
+        for (SongListener l : current) {
+            l.tagAdded(this, tag);
+        }
+    }
+
     /**
      * Binary search on the used portion of the tags array.
      *
@@ -187,12 +293,30 @@ public class Song {
      * @return true if found or false if not
      */
     public boolean containsTag(String tag){
-        //Binary search for tag in used portion of tags array
-        if (tag == null || tagCount <= 0) return false;
-        //Trim spaces from tag
+        return containsNormalizedTag(normalizeTag(tag));
+    }
+
+    /**
+     * Puts a query tag in the form containsNormalizedTag expects (trimmed), so a search
+     * over many songs normalizes it once instead of once per song.
+     *
+     * @param tag tag as entered
+     * @return the trimmed tag, or null if it is null or blank
+     */
+    public static String normalizeTag(String tag){
+        if (tag == null) return null;
         String target = tag.trim();
-        //If empty after trimming - return fase
-        if (target.isEmpty()) return false;
+        return target.isEmpty() ? null : target;
+    }
+
+    /**
+     * Like containsTag, for a tag already passed through normalizeTag. Allocates nothing.
+     *
+     * @param normalized trimmed tag, or null
+     * @return true if found or false if not
+     */
+    public boolean containsNormalizedTag(String normalized){
+        if (normalized == null || tagCount <= 0) return false;
 
         //Binary search
         int low = 0;
@@ -203,7 +327,7 @@ public class Song {
             //Get mid value
             String midVal = tags[mid];
             // Compare mid value with target
-            int cmp = midVal.compareToIgnoreCase(target);
+            int cmp = midVal.compareToIgnoreCase(normalized);
             //Check comparison result
             if (cmp == 0) return true;
             if (cmp < 0) low = mid + 1;
@@ -221,56 +345,56 @@ public class Song {
      * @return
      */
     public String format() {
-        // Protect against null fields
-        String t;
-        if (title == null) t = "";
-        else t = title;
-
-        String a;
-        if (artist == null) a = "";
-        else a = artist;
-
-        String al;
-        if (album == null) al = "";
-        else al = album;
+        StringBuilder sb = new StringBuilder(formattedLengthEstimate());
+        formatTo(sb);
+        return sb.toString();
+    }
 
-        String g;
-        if (genre == null) g = "";
-        else g = genre;
+    /**
+     * Appends the same text as format() to an existing builder, without intermediate strings.
+     *
+     * @param sb builder to append to
+     */
+    public void formatTo(StringBuilder sb) {
+        // Null fields are printed as empty strings
+        sb.append("Title : ");
+        if (title != null) sb.append(title);
+        sb.append("\nArtist: ");
+        if (artist != null) sb.append(artist);
+        sb.append("\nAlbum : ");
+        if (album != null) sb.append(album);
 
-        // Convert rating to string
         // If rating is a whole number (e.g. 5.0), output "5" instead of "5.0".
-        String ratingStr;
+        sb.append("\nRating: ");
         if (rating == (long) rating) {
-            ratingStr = "" + (long) rating;   // whole number
+            sb.append((long) rating); // whole number
         } else {
-            ratingStr = "" + rating;          // keep decimals (e.g. 4.5)
+            sb.append(rating);        // keep decimals (e.g. 4.5)
         }
 
-        // Build the tag section (tag1~~tag2~~...)
-        // We only use tags[0]..tags[tagCount-1].
-        // If tagCount is 0, we append nothing after the final "%%".
-        String tagPart = "";
-
-        if (tagCount > 0) {
-            // First tag has no separator before it
-            if (tags[0] != null) tagPart = tags[0];
+        sb.append("\nGenre : ");
+        if (genre != null) sb.append(genre);
 
-            // Every next tag is added with the "~~" separator
-            for (int i = 1; i < tagCount; i++) {
-                String nextTag = "";
-                if (tags[i] != null) nextTag = tags[i];
-
-                tagPart = tagPart + ", " + nextTag;
-            }
+        // Tag section (tag1, tag2, ...) - only tags[0]..tags[tagCount-1] are used
+        sb.append("\nTags  : ");
+        for (int i = 0; i < tagCount; i++) {
+            if (i > 0) sb.append(", ");
+            if (tags[i] != null) sb.append(tags[i]);
         }
+    }
 
-        // Combine everything together in user-friendly manner
-        return "Title : " + t + "\n"
-                + "Artist: " + a + "\n"
-                + "Album : " + al + "\n"
-                + "Rating: " + ratingStr + "\n"
-                + "Genre : " + g + "\n"
-                + "Tags  : " + tagPart;
+    /**
+     * Rough length of format(), used to presize builders.
+     *
+     * @return estimated number of characters
+     */
+    public int formattedLengthEstimate() {
+        int length = 64; // labels, newlines and rating
+        if (title != null) length += title.length();
+        if (artist != null) length += artist.length();
+        if (album != null) length += album.length();
+        if (genre != null) length += genre.length();
+        length += tagCount * 12; // average tag plus ", "
+        return length;
     }
 }
@@ -0,0 +1,26 @@
+package business;
+
+/**
+ * Callback for objects (such as playlist indexes) that must follow changes to a Song.
+ * Register with Song.addListener; songs without listeners only pay for a modification counter.
+ */
+public interface SongListener {
+
+    /**
+     * Called after a field of the song changed.
+     *
+     * @param song the song that changed
+     * @param field which field changed
+     * @param oldValue the value before the change
+     */
+    void songChanged(Song song, Song.Field field, Object oldValue);
+
+    /**
+     * Called after addTag stored a new tag.
+     *
+     * @param song the song that changed
+     * @param tag the trimmed tag that was added
+     */
+    default void tagAdded(Song song, String tag) {
+    }
+}
@@ -0,0 +1,374 @@
+package utils;
+
+import business.Song;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block-compressed song file with a footer index.
+ *
+ * Songs are stored as their usual Title%%Artist%%...%%tags lines, grouped into blocks of a fixed
+ * number of songs; each block is compressed on its own with Deflater. The footer lists every block's
+ * offset, compressed length and song count, so a reader can jump to the Nth song by decompressing one
+ * block, or decompress all blocks in parallel.
+ *
+ * Layout (big-endian):
+ * header  : int MAGIC, int VERSION, int songsPerBlock
+ * blocks  : deflated UTF-8 lines separated by '\n'
+ * footer  : int blockCount, long songCount, blockCount x (long offset, int compressedLength, int songCount)
+ * trailer : long footerOffset, int MAGIC
+ */
+public class BlockSongFile implements Closeable {
+    private static final int MAGIC = 0x504C424B; // "PLBK"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private final FileChannel channel;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final long[] firstSong; // index of the first song of each block, plus a final total
+    private final int songsPerBlock;
+
+    private BlockSongFile(FileChannel channel, int songsPerBlock, long[] blockOffsets, int[] blockLengths, long[] firstSong) {
+        this.channel = channel;
+        this.songsPerBlock = songsPerBlock;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.firstSong = firstSong;
+    }
+
+    /**
+     * Opens a block-compressed file and loads its footer index.
+     *
+     * @param path file to open
+     * @return reader positioned on the index
+     * @throws IOException if the file is missing or not in this format
+     */
+    public static BlockSongFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + TRAILER_SIZE) throw new IOException("Not a block song file: " + path);
+
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a block song file: " + path);
+            }
+            int songsPerBlock = header.getInt();
+
+            ByteBuffer trailer = readFully(channel, fileSize - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || footerOffset < HEADER_SIZE || footerOffset > fileSize - TRAILER_SIZE) {
+                throw new IOException("Corrupt block song file trailer: " + path);
+            }
+
+            ByteBuffer footer = readFully(channel, footerOffset, (int) (fileSize - TRAILER_SIZE - footerOffset));
+            int blockCount = footer.getInt();
+            footer.getLong(); // total songs, re-derived below
+            if (blockCount < 0 || footer.remaining() != (long) blockCount * ENTRY_SIZE) {
+                throw new IOException("Corrupt block song file index: " + path);
+            }
+            long[] offsets = new long[blockCount];
+            int[] lengths = new int[blockCount];
+            long[] firstSong = new long[blockCount + 1];
+            for (int b = 0; b < blockCount; b++) {
+                offsets[b] = footer.getLong();
+                lengths[b] = footer.getInt();
+                firstSong[b + 1] = firstSong[b] + footer.getInt();
+            }
+            return new BlockSongFile(channel, songsPerBlock, offsets, lengths, firstSong);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts writing a new block-compressed file (replacing any existing one).
+     *
+     * @param path file to create
+     * @param songsPerBlock songs per block
+     * @return writer; close it to write the footer
+     * @throws IOException if the file cannot be created
+     */
+    public static Writer create(Path path, int songsPerBlock) throws IOException {
+        if (songsPerBlock < 1) throw new IllegalArgumentException("songsPerBlock must be positive");
+        return new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), songsPerBlock);
+    }
+
+    public long songCount() {
+        return firstSong[firstSong.length - 1];
+    }
+
+    public int blockCount() {
+        return blockOffsets.length;
+    }
+
+    public int getSongsPerBlock() {
+        return songsPerBlock;
+    }
+
+    /**
+     * Reads one song by position, decompressing only the block that holds it.
+     *
+     * @param index zero-based song position
+     * @return the song
+     * @throws IOException if the block cannot be read
+     */
+    public Song readSong(long index) throws IOException {
+        if (index < 0 || index >= songCount()) {
+            throw new IndexOutOfBoundsException("song " + index + " of " + songCount());
+        }
+        // Binary search for the block whose range contains index
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstSong[mid] <= index) low = mid;
+            else high = mid - 1;
+        }
+        return readBlock(low)[(int) (index - firstSong[low])];
+    }
+
+    /**
+     * Decompresses and parses one block. Safe to call from several threads at once.
+     *
+     * @param block block number
+     * @return the block's songs in file order
+     * @throws IOException if the block is unreadable or corrupt
+     */
+    public Song[] readBlock(int block) throws IOException {
+        int expected = (int) (firstSong[block + 1] - firstSong[block]);
+        ByteBuffer compressed = readFully(channel, blockOffsets[block], blockLengths[block]);
+        String text = new String(inflate(compressed.array()), StandardCharsets.UTF_8);
+
+        Song[] songs = new Song[expected];
+        int count = 0;
+        int start = 0;
+        while (start < text.length() && count < expected) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) end = text.length();
+            Song s = SongFileUtils.parseWrittenSongLine(text.substring(start, end));
+            if (s == null) throw new IOException("Block " + block + " holds an unreadable song line at position " + count);
+            songs[count++] = s;
+            start = end + 1;
+        }
+        if (count != expected) throw new IOException("Block " + block + " holds " + count + " songs, index says " + expected);
+        return songs;
+    }
+
+    /**
+     * Reads every song in file order.
+     *
+     * @param parallel decompress blocks on the common fork-join pool
+     * @return all songs
+     * @throws IOException if any block fails
+     */
+    public Song[] readAll(boolean parallel) throws IOException {
+        Song[][] blocks = new Song[blockOffsets.length][];
+        if (parallel && blocks.length > 1) {
+            IOException[] failure = new IOException[1];
+            ForkJoinPool.commonPool().invoke(new BlockReadTask(blocks, 0, blocks.length, failure));
+            if (failure[0] != null) throw failure[0];
+        } else {
+            for (int b = 0; b < blocks.length; b++) {
+                blocks[b] = readBlock(b);
+            }
+        }
+
+        Song[] all = new Song[(int) songCount()];
+        int k = 0;
+        for (Song[] block : blocks) {
+            for (Song s : block) {
+                all[k++] = s;
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Splits the block range in halves until single blocks remain, then decompresses them.
+     */
+    private class BlockReadTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Song[][] out;
+        private final int from;
+        private final int to;
+        private final IOException[] failure;
+
+        BlockReadTask(Song[][] out, int from, int to, IOException[] failure) {
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BlockReadTask(out, from, mid, failure), new BlockReadTask(out, mid, to, failure));
+                return;
+            }
+            try {
+                out[from] = readBlock(from);
+            } catch (IOException e) {
+                synchronized (failure) {
+                    if (failure[0] == null) failure[0] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams songs into blocks; the footer is written on close.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final int songsPerBlock;
+        private final StringBuilder block = new StringBuilder();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private int blockSongs;
+        private long position = HEADER_SIZE;
+        private long songCount;
+        private long[] offsets = new long[16];
+        private int[] lengths = new int[16];
+        private int[] counts = new int[16];
+        private int blockCount;
+
+        private Writer(FileChannel channel, int songsPerBlock) throws IOException {
+            this.channel = channel;
+            this.songsPerBlock = songsPerBlock;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(songsPerBlock).flip();
+            writeFully(channel, header, 0);
+        }
+
+        public void write(Song s) throws IOException {
+            writeLine(SongFileUtils.formatSongForFile(s));
+        }
+
+        /**
+         * Appends one formatted song line (must not contain a line break).
+         */
+        private void writeLine(String line) throws IOException {
+            if (blockSongs > 0) block.append('\n');
+            block.append(line);
+            blockSongs++;
+            songCount++;
+            if (blockSongs == songsPerBlock) flushBlock();
+        }
+
+        public long songCount() {
+            return songCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (blockSongs > 0) flushBlock();
+                ByteBuffer footer = ByteBuffer.allocate(12 + blockCount * ENTRY_SIZE + TRAILER_SIZE);
+                footer.putInt(blockCount).putLong(songCount);
+                for (int b = 0; b < blockCount; b++) {
+                    footer.putLong(offsets[b]).putInt(lengths[b]).putInt(counts[b]);
+                }
+                footer.putLong(position).putInt(MAGIC).flip();
+                writeFully(channel, footer, position);
+            } finally {
+                deflater.end();
+                channel.close();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            byte[] raw = block.toString().getBytes(StandardCharsets.UTF_8);
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) buffer = grow(buffer);
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            writeFully(channel, ByteBuffer.wrap(buffer, 0, length), position);
+
+            if (blockCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, blockCount * 2);
+                lengths = Arrays.copyOf(lengths, blockCount * 2);
+                counts = Arrays.copyOf(counts, blockCount * 2);
+            }
+            offsets[blockCount] = position;
+            lengths[blockCount] = length;
+            counts[blockCount] = blockSongs;
+            blockCount++;
+            position += length;
+            block.setLength(0);
+            blockSongs = 0;
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[Math.max(256, compressed.length * 4)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) buffer = grow(buffer);
+                int n = inflater.inflate(buffer, length, buffer.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed block");
+                }
+                length += n;
+            }
+            return Arrays.copyOf(buffer, length);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] grow(byte[] buffer) {
+        return Arrays.copyOf(buffer, buffer.length * 2);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position()); // positional read: thread-safe
+            if (n < 0) throw new EOFException("Unexpected end of block song file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package utils;
+
+import business.Song;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Merges song files into a playlist applying only what changed since the previous merge.
+ *
+ * Every line applied is remembered by a 64-bit fingerprint of its text, per song identity
+ * (title, artist, album). On the next merge a line whose fingerprint is known is skipped without
+ * being parsed, so re-merging a nightly file costs a hash per line plus work proportional to the
+ * lines that changed. A changed line is parsed and looked up with Playlist.findSong: unknown songs
+ * are inserted, known ones get the new rating and genre and any tags they lack (tags are never
+ * removed, and tags beyond a song's tag capacity are counted as dropped).
+ *
+ * The first merge of a file parses every line. Edits made in the app to a song whose line has
+ * not changed since are kept. Not thread-safe: use one merger per playlist, from one thread.
+ */
+public class DeltaMerger {
+    private final Playlist target;
+    private final HashSet<Long> applied = new HashSet<>(); // fingerprints of the current line of each song
+    private final HashMap<SongIdentity, Long> lineOf = new HashMap<>(); // song -> fingerprint of its line
+    private final HashSet<Long> malformed = new HashSet<>(); // fingerprints of lines that did not parse
+
+    /**
+     * Counters for one merge.
+     */
+    public static final class Result {
+        private long lines;
+        private long skipped;
+        private long unchanged;
+        private long inserted;
+        private long updated;
+        private long rejected;
+        private long tagsDropped;
+
+        public long getLines() {
+            return lines;
+        }
+
+        /**
+         * @return lines skipped unparsed because they were applied before
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return changed lines whose song already matched (e.g. only spacing or tag order differed)
+         */
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        /**
+         * @return malformed lines
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return new tags that did not fit in their song's tag array
+         */
+        public long getTagsDropped() {
+            return tagsDropped;
+        }
+
+        @Override
+        public String toString() {
+            return "lines=" + lines + ", skipped=" + skipped + ", unchanged=" + unchanged
+                    + ", inserted=" + inserted + ", updated=" + updated + ", rejected=" + rejected
+                    + ", tagsDropped=" + tagsDropped;
+        }
+    }
+
+    /**
+     * @param target playlist to merge into
+     */
+    public DeltaMerger(Playlist target) {
+        if (target == null) throw new IllegalArgumentException("target is null");
+        this.target = target;
+    }
+
+    /**
+     * Merges one song file.
+     *
+     * @param filename file in the Title%%Artist%%... format
+     * @return counters for this merge
+     * @throws IOException if the file cannot be read
+     */
+    public Result merge(String filename) throws IOException {
+        Result result = new Result();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                result.lines++;
+                long fingerprint = fingerprint(line);
+                if (applied.contains(fingerprint)) {
+                    result.skipped++;
+                    continue;
+                }
+                if (malformed.contains(fingerprint)) { // known bad line: still reported, not reparsed
+                    result.rejected++;
+                    continue;
+                }
+                Song parsed = SongFileUtils.parseSongLine(line);
+                if (parsed == null) {
+                    malformed.add(fingerprint);
+                    result.rejected++;
+                    continue;
+                }
+                apply(parsed, result);
+                remember(SongIdentity.of(parsed), fingerprint);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inserts the song, or brings the stored song with the same identity up to date.
+     */
+    private void apply(Song parsed, Result result) {
+        Song existing = target.findSong(parsed.getTitle(), parsed.getArtist(), parsed.getAlbum());
+        if (existing == null) {
+            if (target.addSong(parsed)) {
+                result.inserted++;
+            } else {
+                result.rejected++;
+            }
+            return;
+        }
+
+        boolean changed = false;
+        if (Double.compare(existing.getRating(), parsed.getRating()) != 0) {
+            existing.setRating(parsed.getRating());
+            changed = true;
+        }
+        if (parsed.getGenre() != null && !parsed.getGenre().equals(existing.getGenre())) {
+            existing.setGenre(parsed.getGenre());
+            changed = true;
+        }
+        String[] tags = parsed.getTags();
+        for (int i = 0; i < parsed.getTagCount(); i++) {
+            String tag = tags[i];
+            if (tag == null || tag.trim().isEmpty() || existing.containsTag(tag)) continue;
+            if (existing.addTag(tag)) {
+                changed = true;
+            } else {
+                result.tagsDropped++; // tag array is full
+            }
+        }
+        if (changed) {
+            result.updated++;
+        } else {
+            result.unchanged++;
+        }
+    }
+
+    /**
+     * Records a song's new line, forgetting the line it replaces so that line is parsed again if it comes back.
+     */
+    private void remember(SongIdentity identity, long fingerprint) {
+        Long previous = lineOf.put(identity, fingerprint);
+        if (previous != null && previous != fingerprint) applied.remove(previous);
+        applied.add(fingerprint);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the line's characters.
+     */
+    static long fingerprint(String line) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < line.length(); i++) {
+            h ^= line.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,355 @@
+package utils;
+
+import business.Song;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts song files that are too large to load, with a bounded amount of memory.
+ *
+ * The input is read in chunks that fit the memory budget; each chunk is sorted (stable) and spilled
+ * to a temporary run file, and the runs are then merged with a heap. Ties between runs go to the
+ * earlier run, so the whole sort is stable: with Order.TAG_COUNT the output is in the same order
+ * Playlist.sortSongsByNumTags gives. Lines are written out exactly as read; malformed lines
+ * (those readSongFile would skip) are dropped and counted.
+ */
+public class ExternalSongSorter {
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private static final long MIN_MEMORY_BUDGET = 64 * 1024;
+    private static final int MAX_FAN_IN = 128; // runs merged at once; more need extra passes
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RECORD_OVERHEAD = 96; // object headers, array slot and key, per line
+
+    /**
+     * Sort keys. Every order is stable: songs with equal keys keep their file order.
+     */
+    public enum Order {
+        TAG_COUNT, // most tags first, like Playlist.sortSongsByNumTags
+        RATING, // highest rating first
+        ARTIST // artist A-Z, ignoring case
+    }
+
+    private final Order order;
+    private final long memoryBudget;
+    private final Path tempDir;
+    private final Comparator<Record> comparator;
+
+    /**
+     * Counters for one sort.
+     */
+    public static final class Result {
+        private long lines;
+        private long written;
+        private long malformed;
+        private int runs;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        /**
+         * @return number of sorted runs spilled to disk (0 if the input fit in memory)
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        @Override
+        public String toString() {
+            return "lines=" + lines + ", written=" + written + ", malformed=" + malformed + ", runs=" + runs;
+        }
+    }
+
+    /**
+     * One input line with its sort key.
+     */
+    private static final class Record {
+        private final double number; // tag count or rating
+        private final String text; // artist
+        private final String line;
+
+        Record(double number, String text, String line) {
+            this.number = number;
+            this.text = text;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Sorter with the default memory budget, spilling to the system temp directory.
+     *
+     * @param order sort key
+     */
+    public ExternalSongSorter(Order order) {
+        this(order, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * @param order sort key
+     * @param memoryBudget approximate bytes of lines held in memory at once
+     * @param tempDir directory for run files, or null for the system temp directory
+     */
+    public ExternalSongSorter(Order order, long memoryBudget, Path tempDir) {
+        if (order == null) throw new IllegalArgumentException("order is null");
+        if (memoryBudget < MIN_MEMORY_BUDGET) throw new IllegalArgumentException("memoryBudget below " + MIN_MEMORY_BUDGET);
+        this.order = order;
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+        switch (order) {
+            case TAG_COUNT:
+            case RATING:
+                comparator = (a, b) -> Double.compare(b.number, a.number); // descending
+                break;
+            default:
+                comparator = (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.text, b.text);
+                break;
+        }
+    }
+
+    /**
+     * Sorts a song file into another file.
+     *
+     * @param input Title%%Artist%%... file to sort
+     * @param output file to create or overwrite with the sorted lines
+     * @return counters for this sort
+     * @throws IOException if a file cannot be read or written
+     */
+    public Result sort(Path input, Path output) throws IOException {
+        Result result = new Result();
+        ArrayList<Path> created = new ArrayList<>(); // every temp file, deleted at the end
+        ArrayList<Path> runs = new ArrayList<>();
+        try {
+            ArrayList<Record> chunk = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(input), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                long used = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    result.lines++;
+                    Record record = toRecord(line);
+                    if (record == null) {
+                        result.malformed++;
+                        continue;
+                    }
+                    chunk.add(record);
+                    used += RECORD_OVERHEAD + 2L * (line.length() + (record.text == null ? 0 : record.text.length()));
+                    if (used >= memoryBudget) {
+                        runs.add(spill(chunk, created));
+                        chunk.clear();
+                        used = 0;
+                    }
+                }
+            }
+
+            if (runs.isEmpty()) { // everything fit: no temp files needed
+                chunk.sort(comparator);
+                try (Writer out = newWriter(output)) {
+                    for (Record r : chunk) {
+                        out.write(r.line);
+                        out.write('\n');
+                    }
+                }
+                result.written = chunk.size();
+                return result;
+            }
+            if (!chunk.isEmpty()) runs.add(spill(chunk, created));
+            chunk = null; // let the last chunk go before merging
+            result.runs = runs.size();
+
+            while (runs.size() > MAX_FAN_IN) { // merge neighbouring runs so ties still favour earlier lines
+                ArrayList<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    Path run = newRunFile(created);
+                    merged.add(run);
+                    try (DataOutputStream out = newRunWriter(run)) {
+                        merge(runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size())), record -> writeRecord(out, record));
+                    }
+                }
+                deleteAll(runs); // done with this level
+                runs = merged;
+            }
+            try (Writer out = newWriter(output)) {
+                result.written = merge(runs, record -> {
+                    out.write(record.line);
+                    out.write('\n');
+                });
+            }
+            return result;
+        } finally {
+            deleteAll(created);
+        }
+    }
+
+    /**
+     * Parses a line far enough to get its key; null if it is not a valid song.
+     */
+    private Record toRecord(String line) {
+        Song s = SongFileUtils.parseSongLine(line);
+        if (s == null) return null;
+        switch (order) {
+            case TAG_COUNT:
+                return new Record(s.getTagCount(), null, line);
+            case RATING:
+                return new Record(s.getRating(), null, line);
+            default:
+                return new Record(0, s.getArtist(), line);
+        }
+    }
+
+    /**
+     * Sorts a chunk and writes it to a new run file.
+     */
+    private Path spill(ArrayList<Record> chunk, List<Path> created) throws IOException {
+        chunk.sort(comparator); // List.sort is stable
+        Path run = newRunFile(created);
+        try (DataOutputStream out = newRunWriter(run)) {
+            for (Record r : chunk) {
+                writeRecord(out, r);
+            }
+        }
+        return run;
+    }
+
+    private interface RecordSink {
+        void accept(Record record) throws IOException;
+    }
+
+    /**
+     * Cursor over one run file during a merge.
+     */
+    private static final class RunCursor {
+        private final DataInputStream in;
+        private final int run; // position among the runs being merged, breaks ties
+        private Record current;
+
+        RunCursor(DataInputStream in, int run) {
+            this.in = in;
+            this.run = run;
+        }
+
+        boolean advance() throws IOException {
+            current = readRecord(in);
+            return current != null;
+        }
+    }
+
+    /**
+     * k-way merge of sorted runs into a sink.
+     *
+     * @return number of records merged
+     */
+    private long merge(List<Path> runs, RecordSink sink) throws IOException {
+        PriorityQueue<RunCursor> heap = new PriorityQueue<>(runs.size(), (a, b) -> {
+            int c = comparator.compare(a.current, b.current);
+            return c != 0 ? c : Integer.compare(a.run, b.run); // earlier run first keeps the sort stable
+        });
+        ArrayList<DataInputStream> open = new ArrayList<>();
+        long count = 0;
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runs.get(i)), BUFFER_SIZE));
+                open.add(in);
+                RunCursor cursor = new RunCursor(in, i);
+                if (cursor.advance()) heap.add(cursor);
+            }
+            while (!heap.isEmpty()) {
+                RunCursor smallest = heap.poll();
+                sink.accept(smallest.current);
+                count++;
+                if (smallest.advance()) heap.add(smallest);
+            }
+        } finally {
+            for (DataInputStream in : open) {
+                in.close();
+            }
+        }
+        return count;
+    }
+
+    // Run file record: double number, then text and line as (int length, UTF-8 bytes); length -1 means null
+
+    private static void writeRecord(DataOutputStream out, Record r) throws IOException {
+        out.writeDouble(r.number);
+        writeString(out, r.text);
+        writeString(out, r.line);
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        double number;
+        try {
+            number = in.readDouble();
+        } catch (EOFException e) {
+            return null; // end of run
+        }
+        String text = readString(in);
+        String line = readString(in);
+        return new Record(number, text, line);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path newRunFile(List<Path> created) throws IOException {
+        Path run = tempDir == null ? Files.createTempFile("songsort", ".run") : Files.createTempFile(tempDir, "songsort", ".run");
+        created.add(run);
+        return run;
+    }
+
+    private static DataOutputStream newRunWriter(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE));
+    }
+
+    private static Writer newWriter(Path output) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static void deleteAll(List<Path> files) {
+        for (Path p : files) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException ignored) {
+                // best effort: a leftover temp file is not worth failing the sort for
+            }
+        }
+    }
+}
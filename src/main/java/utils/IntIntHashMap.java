@@ -0,0 +1,143 @@
+package utils;
+
+/**
+ * Open-addressing hash map from non-negative int keys to int values.
+ * Stores keys and values in two primitive arrays (linear probing, no boxing).
+ */
+class IntIntHashMap {
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    IntIntHashMap() {
+        this(4);
+    }
+
+    IntIntHashMap(int expected) {
+        int capacity = 8;
+        while (capacity * 3 < expected * 4) { // keep load factor under 0.75
+            capacity <<= 1;
+        }
+        keys = newKeyArray(capacity);
+        values = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return value stored under key, or 0 if absent
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == FREE) return 0;
+        }
+    }
+
+    /**
+     * Adds delta to the value under key; the entry is removed when it reaches 0.
+     *
+     * @return the new value
+     */
+    int addTo(int key, int delta) {
+        if (key < 0) throw new IllegalArgumentException("negative key " + key);
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (true) {
+            int k = keys[i];
+            if (k == key) {
+                int updated = values[i] + delta;
+                if (updated == 0) {
+                    removeAt(i);
+                } else {
+                    values[i] = updated;
+                }
+                return updated;
+            }
+            if (k == FREE) break;
+            i = (i + 1) & mask;
+        }
+        if (delta == 0) return 0;
+        keys[i] = key;
+        values[i] = delta;
+        size++;
+        if (size * 4 > keys.length * 3) rehash(keys.length << 1);
+        return delta;
+    }
+
+    /**
+     * Raw key table for iteration; FREE (-1) marks empty slots.
+     */
+    int[] keyTable() {
+        return keys;
+    }
+
+    /**
+     * Raw value table, parallel to keyTable().
+     */
+    int[] valueTable() {
+        return values;
+    }
+
+    /**
+     * Backward-shift deletion keeps probe chains intact without tombstones.
+     */
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == FREE) break;
+            int home = mix(k) & mask;
+            // move k into the hole if its home slot is not between the hole and i (cyclically)
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = FREE;
+        values[hole] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = newKeyArray(capacity);
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int k = oldKeys[j];
+            if (k == FREE) continue;
+            int i = mix(k) & mask;
+            while (keys[i] != FREE) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int[] newKeyArray(int capacity) {
+        int[] table = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            table[i] = FREE;
+        }
+        return table;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9; // spread sequential ids
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,299 @@
+package utils;
+
+import business.Song;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only, lazily materialized view of a song file.
+ *
+ * Opening the file maps it into memory and makes one fast pass that keeps only, per song,
+ * the line's offset and length, its rating and the hashes of its tags. Full Song objects are parsed
+ * from the mapped bytes the first time they are asked for and kept in a bounded LRU cache, so
+ * startup time and resident memory depend on what is used, not on the file size.
+ *
+ * Songs handed out are parsed copies: changes made to them are not written back and may be lost
+ * once they are evicted from the cache. Song numbering counts valid lines only, like readSongFile.
+ */
+public class LazySongFile implements Closeable {
+    private static final long SEGMENT_SIZE = 1L << 30; // mapped in 1 GB pieces
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final Song[] NO_SONGS = new Song[0];
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int size;
+    private final long[] lineStart;
+    private final int[] lineLength;
+    private final double[] ratings;
+    private final int[] tagOffsets; // tags of song i are tagHashes[tagOffsets[i]..tagOffsets[i+1])
+    private final int[] tagHashes;
+    private final LinkedHashMap<Integer, Song> cache;
+
+    private LazySongFile(FileChannel channel, MappedByteBuffer[] segments, Index index, int cacheSize) {
+        this.channel = channel;
+        this.segments = segments;
+        this.size = index.size;
+        this.lineStart = Arrays.copyOf(index.lineStart, size);
+        this.lineLength = Arrays.copyOf(index.lineLength, size);
+        this.ratings = Arrays.copyOf(index.ratings, size);
+        this.tagOffsets = Arrays.copyOf(index.tagOffsets, size + 1);
+        this.tagHashes = Arrays.copyOf(index.tagHashes, index.tagOffsets[size]);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) { // access order = LRU
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Song> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Maps a song file and indexes its lines without creating any Song.
+     *
+     * @param filename song file in the Title%%Artist%%... format
+     * @param cacheSize maximum number of parsed songs kept in memory
+     * @return lazy view of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static LazySongFile open(String filename, int cacheSize) throws IOException {
+        if (cacheSize < 1) throw new IllegalArgumentException("cacheSize must be positive");
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            int count = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            MappedByteBuffer[] segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+            }
+            Index index = new Index();
+            scanLines(segments, length, index);
+            return new LazySongFile(channel, segments, index, cacheSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of songs (valid lines) in the file
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the song at a position, parsing it from the mapped file unless it is cached.
+     *
+     * @param index zero-based song number
+     * @return the song
+     */
+    public synchronized Song get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("song " + index + " of " + size);
+        Song s = cache.get(index);
+        if (s == null) {
+            byte[] line = new byte[lineLength[index]];
+            copy(lineStart[index], line, line.length);
+            s = SongFileUtils.parseSongLine(new String(line, StandardCharsets.UTF_8));
+            cache.put(index, s);
+        }
+        return s;
+    }
+
+    /**
+     * Rating of a song, answered from the index without parsing the song.
+     *
+     * @param index zero-based song number
+     * @return the song's rating
+     */
+    public double getRating(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("song " + index + " of " + size);
+        return ratings[index];
+    }
+
+    /**
+     * Finds songs carrying a tag. Candidates are picked by tag hash from the index,
+     * so only matching songs (plus the odd hash collision) are ever parsed.
+     *
+     * @param tag tag to search for
+     * @return matching songs in file order (possibly empty)
+     */
+    public Song[] searchByTag(String tag) {
+        if (tag == null || tag.trim().isEmpty()) return NO_SONGS;
+        int hash = SongLineScanner.tagHash(tag);
+        Song[] matches = new Song[8];
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            for (int t = tagOffsets[i]; t < tagOffsets[i + 1]; t++) {
+                if (tagHashes[t] != hash) continue;
+                Song s = get(i);
+                if (s.containsTag(tag)) { // rule out hash collisions
+                    if (found == matches.length) matches = Arrays.copyOf(matches, found * 2);
+                    matches[found++] = s;
+                }
+                break;
+            }
+        }
+        return Arrays.copyOf(matches, found);
+    }
+
+    /**
+     * Highest-rated song (first one on ties), found from the rating index; only the winner is parsed.
+     * As in Playlist, NaN ratings are passed over unless the first song has one.
+     *
+     * @return most popular song, or null if the file has no songs
+     */
+    public Song findMostPopular() {
+        if (size > 0 && ratings[0] != ratings[0]) return get(0); // nothing compares greater than NaN
+        int best = -1;
+        double bestRating = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double r = ratings[i];
+            if (r > bestRating || (best == -1 && r == r)) {
+                bestRating = r;
+                best = i;
+            }
+        }
+        return best < 0 ? null : get(best);
+    }
+
+    /**
+     * @return number of parsed songs currently held in the cache
+     */
+    public synchronized int cachedSongs() {
+        return cache.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            cache.clear();
+        }
+        channel.close(); // the mappings are released when they are garbage collected
+    }
+
+    /**
+     * Copies length bytes starting at a file position into dst, crossing segment borders if needed.
+     */
+    private void copy(long position, byte[] dst, int length) {
+        int done = 0;
+        while (done < length) {
+            MappedByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+            int offset = (int) (position % SEGMENT_SIZE);
+            int n = Math.min(length - done, segment.limit() - offset);
+            segment.get(offset, dst, done, n);
+            done += n;
+            position += n;
+        }
+    }
+
+    /**
+     * Growable per-song columns filled by the first pass.
+     */
+    private static final class Index {
+        private int size;
+        private long[] lineStart = new long[1024];
+        private int[] lineLength = new int[1024];
+        private double[] ratings = new double[1024];
+        private int[] tagOffsets = new int[1025];
+        private int[] tagHashes = new int[4096];
+        private final int[] bounds = new int[2 * SongLineScanner.FIELDS];
+
+        /**
+         * Indexes one line if it is a valid song.
+         */
+        void addLine(long start, byte[] buf, int from, int to) {
+            if (to > from && buf[to - 1] == '\r') to--; // Windows line ending
+            int length = to - from;
+            if (SongLineScanner.splitFields(buf, from, to, bounds) != SongLineScanner.FIELDS) return;
+
+            if (size == lineStart.length) {
+                int grown = size * 2;
+                lineStart = Arrays.copyOf(lineStart, grown);
+                lineLength = Arrays.copyOf(lineLength, grown);
+                ratings = Arrays.copyOf(ratings, grown);
+                tagOffsets = Arrays.copyOf(tagOffsets, grown + 1);
+            }
+            lineStart[size] = start;
+            lineLength[size] = length;
+            ratings[size] = SongLineScanner.parseRating(buf, bounds[2 * SongLineScanner.RATING],
+                    bounds[2 * SongLineScanner.RATING + 1]);
+
+            int tagCount = tagOffsets[size];
+            int tagEnd = bounds[2 * SongLineScanner.TAGS + 1];
+            int t = bounds[2 * SongLineScanner.TAGS];
+            while (t <= tagEnd) {
+                int end = SongLineScanner.nextTagSeparator(buf, t, tagEnd);
+                if (!SongLineScanner.isBlank(buf, t, end)) {
+                    if (tagCount == tagHashes.length) tagHashes = Arrays.copyOf(tagHashes, tagCount * 2);
+                    tagHashes[tagCount++] = SongLineScanner.tagHash(buf, t, end);
+                }
+                t = end + 2;
+            }
+            size++;
+            tagOffsets[size] = tagCount;
+        }
+    }
+
+    /**
+     * First pass: walks the mapped file in windows, cutting it into lines.
+     * Lines that straddle a window border are assembled in a separate buffer.
+     */
+    private static void scanLines(MappedByteBuffer[] segments, long length, Index index) {
+        byte[] window = new byte[WINDOW_SIZE];
+        byte[] pending = new byte[256]; // start of a line cut by the window border
+        int pendingLength = 0;
+        long lineStart = 0;
+        long position = 0;
+
+        while (position < length) {
+            MappedByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+            int offset = (int) (position % SEGMENT_SIZE);
+            int n = Math.min(WINDOW_SIZE, segment.limit() - offset);
+            segment.get(offset, window, 0, n);
+
+            int from = 0;
+            for (int i = 0; i < n; i++) {
+                if (window[i] != '\n') continue;
+                if (pendingLength > 0) { // finish a line begun in an earlier window
+                    pending = append(pending, pendingLength, window, from, i);
+                    index.addLine(lineStart, pending, 0, pendingLength + i - from);
+                    pendingLength = 0;
+                } else {
+                    index.addLine(lineStart, window, from, i);
+                }
+                from = i + 1;
+                lineStart = position + from;
+            }
+            if (from < n) { // keep the unfinished tail for the next window
+                pending = append(pending, pendingLength, window, from, n);
+                pendingLength += n - from;
+            }
+            position += n;
+        }
+        if (pendingLength > 0) { // last line without a trailing newline
+            index.addLine(lineStart, pending, 0, pendingLength);
+        }
+    }
+
+    /**
+     * Appends src[from..to) after the first used bytes of dst, growing dst if needed.
+     */
+    private static byte[] append(byte[] dst, int used, byte[] src, int from, int to) {
+        int needed = used + (to - from);
+        if (needed > dst.length) dst = Arrays.copyOf(dst, Math.max(needed, dst.length * 2));
+        System.arraycopy(src, from, dst, used, to - from);
+        return dst;
+    }
+}
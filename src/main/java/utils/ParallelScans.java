@@ -0,0 +1,191 @@
+package utils;
+
+import business.Song;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join versions of Playlist's full scans.
+ *
+ * The used part of the catalogue is split into chunks; every chunk fills its own result buffer
+ * and results are merged left to right, so the output is exactly what the sequential scan returns.
+ */
+final class ParallelScans {
+    private static final int MIN_CHUNK = 4096;
+
+    private ParallelScans() {
+    }
+
+    /**
+     * Songs containing the tag, in catalogue order.
+     *
+     * @param tag query already passed through Song.normalizeTag
+     */
+    static Song[] searchByTag(Song[] catalogue, int size, String tag) {
+        ArrayList<Song> matches = ForkJoinPool.commonPool().invoke(new TagSearch(catalogue, 0, size, chunkSize(size), tag));
+        return matches.toArray(new Song[matches.size()]);
+    }
+
+    /**
+     * Unique tags (case-insensitive) in order of first appearance, spelled as first seen.
+     */
+    static String[] allTags(Song[] catalogue, int size) {
+        UniqueTags tags = ForkJoinPool.commonPool().invoke(new TagCollect(catalogue, 0, size, chunkSize(size)));
+        return tags.ordered.toArray(new String[tags.ordered.size()]);
+    }
+
+    /**
+     * Index of the highest rating (first one on ties), or -1 if every slot is NaN.
+     */
+    static int indexOfMaxRating(double[][] ratings, int size) {
+        return ForkJoinPool.commonPool().invoke(new MaxRating(ratings, 0, size, chunkSize(size)));
+    }
+
+    /**
+     * About four chunks per worker thread, so uneven chunks still balance out.
+     */
+    private static int chunkSize(int size) {
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        return Math.max(MIN_CHUNK, size / (parallelism * 4));
+    }
+
+    private static final class TagSearch extends RecursiveTask<ArrayList<Song>> {
+        private static final long serialVersionUID = 1L;
+        private final Song[] catalogue;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final String tag;
+
+        TagSearch(Song[] catalogue, int from, int to, int chunk, String tag) {
+            this.catalogue = catalogue;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.tag = tag;
+        }
+
+        @Override
+        protected ArrayList<Song> compute() {
+            if (to - from > chunk) {
+                int mid = (from + to) >>> 1;
+                TagSearch right = new TagSearch(catalogue, mid, to, chunk, tag);
+                right.fork();
+                ArrayList<Song> left = new TagSearch(catalogue, from, mid, chunk, tag).compute();
+                left.addAll(right.join()); // left part first keeps catalogue order
+                return left;
+            }
+            ArrayList<Song> matches = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Song s = catalogue[i];
+                if (s != null && s.containsNormalizedTag(tag)) matches.add(s);
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * Unique tags of one range: keys for membership, spellings in first-seen order.
+     */
+    private static final class UniqueTags {
+        private final HashSet<String> keys = new HashSet<>();
+        private final ArrayList<String> ordered = new ArrayList<>();
+
+        void add(String tag) {
+            if (keys.add(foldCase(tag))) ordered.add(tag);
+        }
+    }
+
+    private static final class TagCollect extends RecursiveTask<UniqueTags> {
+        private static final long serialVersionUID = 1L;
+        private final Song[] catalogue;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        TagCollect(Song[] catalogue, int from, int to, int chunk) {
+            this.catalogue = catalogue;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected UniqueTags compute() {
+            if (to - from > chunk) {
+                int mid = (from + to) >>> 1;
+                TagCollect right = new TagCollect(catalogue, mid, to, chunk);
+                right.fork();
+                UniqueTags left = new TagCollect(catalogue, from, mid, chunk).compute();
+                for (String tag : right.join().ordered) { // right-hand tags not already seen on the left
+                    left.add(tag);
+                }
+                return left;
+            }
+            UniqueTags unique = new UniqueTags();
+            for (int i = from; i < to; i++) {
+                Song s = catalogue[i];
+                if (s == null) continue;
+                String[] tags = s.getTags();
+                for (int t = 0; t < s.getTagCount(); t++) {
+                    if (tags[t] != null) unique.add(tags[t]);
+                }
+            }
+            return unique;
+        }
+    }
+
+    private static final class MaxRating extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final double[][] ratings; // RatingColumn spine
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        MaxRating(double[][] ratings, int from, int to, int chunk) {
+            this.ratings = ratings;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from > chunk) {
+                int mid = (from + to) >>> 1;
+                MaxRating right = new MaxRating(ratings, mid, to, chunk);
+                right.fork();
+                int left = new MaxRating(ratings, from, mid, chunk).compute();
+                int other = right.join();
+                if (left < 0) return other;
+                if (other < 0) return left;
+                // ties keep the earlier index
+                return RatingColumn.get(ratings, other) > RatingColumn.get(ratings, left) ? other : left;
+            }
+            int best = -1;
+            double bestRating = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double r = RatingColumn.get(ratings, i);
+                if (r > bestRating || (best == -1 && r == r)) {
+                    bestRating = r;
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Case key matching String.equalsIgnoreCase (upper-case, then lower-case, per char).
+     */
+    static String foldCase(String s) {
+        char[] folded = new char[s.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return new String(folded);
+    }
+}
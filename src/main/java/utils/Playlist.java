@@ -1,11 +1,77 @@
 package utils;
 
 import business.Song;
+import business.SongListener;
 
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class Playlist {
+    // Full scans switch to fork-join at this many songs
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 100_000;
+    // Play-event popularity: songs ranked by mostPopularNow, and how fast old plays fade
+    public static final int POPULAR_NOW_CAPACITY = 100;
+    public static final double POPULARITY_HALF_LIFE_SECONDS = 3600;
+    // Shared results for searches that find nothing (empty arrays can't be modified)
+    private static final Song[] NO_SONGS = new Song[0];
+    private static final String[] NO_TAGS = new String[0];
+
     private Song[] catalogue;
     private int size;
+    // ratings[i] mirrors catalogue[i].getRating() (NaN for null slots) so rating scans stay on primitives;
+    // chunked so a rating change copies one chunk, not the column (see RatingColumn)
+    private RatingColumn ratings;
+    private int nanRatings; // number of NaN entries in ratings[0..size-1]
+    // Case-insensitive secondary indexes, kept current through the song listener.
+    // All null until the first lookup that needs them (see buildIndexes), so loading stays cheap
+    private SongFieldIndex artistIndex;
+    private SongFieldIndex albumIndex;
+    private SongFieldIndex genreIndex;
+    private TagCooccurrence tagPairs; // which tags appear together
+    private SimilarityIndex similarity; // MinHash/LSH over tag sets
+    private final SongListener songListener = new SongWatcher();
+    // Slot of each stored song in catalogue (MULTIPLE if the same object is stored more than once).
+    // Null until a rating change, tag change or sort needs it (see slots())
+    private IdentityHashMap<Song, Integer> slots;
+    private static final int MULTIPLE = -1;
+    // First stored song for each title/artist/album, rekeyed through the song listener.
+    // Null until addSong or findSong needs it (see identities()), so loading a file stays cheap
+    private HashMap<SongIdentity, Song> identities;
+    private boolean sharedIdentities; // set once two stored songs have had the same identity
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    // Latest committed state; readers work on this and never see a write in progress
+    private volatile Version published;
+    private long versionNumber;
+    private final AtomicInteger openSnapshots = new AtomicInteger();
+    private volatile PopularityTracker plays; // created on the first recorded play
+    private PlaylistChangeFeed feed; // created on the first changeFeed() call
+
+    /**
+     * Immutable view of the playlist after one write.
+     * Appends only fill slots past size, sorting works on fresh arrays and a rating change copies the
+     * chunk it lands in, so a version's songs[0..size-1] and ratings never change after it is published.
+     */
+    private static final class Version {
+        private final Song[] songs;
+        private final double[][] ratings; // RatingColumn spine: read with RatingColumn.get
+        private final int size;
+        private final int nanRatings;
+        private final long number;
+
+        Version(Song[] songs, double[][] ratings, int size, int nanRatings, long number) {
+            this.songs = songs;
+            this.ratings = ratings;
+            this.size = size;
+            this.nanRatings = nanRatings;
+            this.number = number;
+        }
+    }
 
     /**
      * Construct a playlist by array
@@ -13,8 +79,14 @@ public class Playlist {
      * @param data initial song array
      */
     public Playlist(Song [] data){
-        this.catalogue = data;
+        this.catalogue = data.clone(); // the caller keeps its array; published versions must not change
         this.size = data.length;
+        this.ratings = new RatingColumn(data.length);
+        for (int i = 0; i < size; i++) {
+            setRatingSlot(i, data[i]);
+            track(data[i], i);
+        }
+        publish();
     }
 
     /**
@@ -24,22 +96,52 @@ public class Playlist {
      * @param s song to add
      * @return trure if added, false if null, duplicate, or capacity issue
      */
-    public boolean addSong(Song s){
+    public synchronized boolean addSong(Song s){
         if (s == null) return false; //false if null input
-
-        for (int i = 0; i< size; i++){
-            Song existing = catalogue[i]; //current song
-            if (existing != null && existing.equals(s)) { //duplicate check
-                return false;
-            }
-        }
+        if (identities().containsKey(SongIdentity.of(s))) return false; //duplicate check
 
         ensureCapacity(size + 1); //grow array if needed
         catalogue[size] = s;
+        setRatingSlot(size, s);
+        track(s, size);
         size++;
+        publish();
+        if (feed != null) feed.songAdded(s);
         return true;
     }
 
+    /**
+     * Stops listening to the stored songs, so a playlist built over shared Song objects
+     * (see Workspace.toPlaylist) no longer slows down their setters or stays reachable from them.
+     * Queries keep working on the stored songs, but indexes and the rating column no longer
+     * follow later changes to them.
+     */
+    public synchronized void detach() {
+        for (int i = 0; i < size; i++) {
+            if (catalogue[i] != null) catalogue[i].removeListener(songListener);
+        }
+    }
+
+    /**
+     * Size from which searchByTag, getAllTags and findMostPopular scan in parallel.
+     *
+     * @return current threshold
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the size from which full scans run on the common fork-join pool;
+     * smaller playlists keep the sequential scan. Results are identical either way.
+     *
+     * @param parallelThreshold number of songs (Integer.MAX_VALUE disables parallel scans)
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) throw new IllegalArgumentException("threshold must be positive");
+        this.parallelThreshold = parallelThreshold;
+    }
+
     /**
      * Finds all songs containing the provided tag using linear search.
      *
@@ -47,23 +149,28 @@ public class Playlist {
      * @return array of matching songs (possibly empty)
      */
     public Song[] searchByTag(String tag) {
-        if (tag == null || size == 0) return new Song[0]; // nothing to search
+        Version v = published; // read one consistent version
+        Song[] songs = v.songs;
+        int size = v.size;
+        String query = Song.normalizeTag(tag); // trim once, not once per song
+        if (query == null || size == 0) return NO_SONGS; // nothing to search
+        if (size >= parallelThreshold) return ParallelScans.searchByTag(songs, size, query); // big: fork-join
 
         int matchCount = 0; // counter for matches
         for (int i = 0; i < size; i++) { // first pass count
-            Song s = catalogue[i]; // current song
-            if (s != null && s.containsTag(tag)) { // has tag?
+            Song s = songs[i]; // current song
+            if (s != null && s.containsNormalizedTag(query)) { // has tag?
                 matchCount++; // tally match
             }
         }
 
-        if (matchCount == 0) return new Song[0]; //no matches
+        if (matchCount == 0) return NO_SONGS; //no matches
 
         Song[] results = new Song[matchCount]; // allocate result array
         int idx = 0; // result index
         for (int i = 0; i < size; i++) { // second pass collect
-            Song s = catalogue[i]; // current song
-            if (s != null && s.containsTag(tag)) { // has tag?
+            Song s = songs[i]; // current song
+            if (s != null && s.containsNormalizedTag(query)) { // has tag?
                 results[idx] = s; // store match
                 idx++; // advance result index
             }
@@ -71,40 +178,436 @@ public class Playlist {
         return results; // return matches
     }
 
+    /**
+     * Tag search into a caller-owned buffer, for hot paths that can't afford a new array per query.
+     * Fills out with the first matches in playlist order and keeps counting past its end, so a
+     * caller whose buffer was too small knows how big to make it. Allocates nothing, except one
+     * trimmed copy of a tag that has surrounding spaces.
+     *
+     * @param tag tag to search for
+     * @param out buffer for matches; entries past the returned count (or past out.length) are left as they were
+     * @return total number of matching songs, which may exceed out.length
+     */
+    public int searchByTag(String tag, Song[] out) {
+        Version v = published; // read one consistent version
+        Song[] songs = v.songs;
+        String query = Song.normalizeTag(tag);
+        if (query == null) return 0;
+        int found = 0;
+        for (int i = 0; i < v.size; i++) {
+            Song s = songs[i];
+            if (s != null && s.containsNormalizedTag(query)) {
+                if (found < out.length) out[found] = s;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Passes every song carrying the tag to action, in playlist order, without building a result array.
+     * Like searchByTag(tag, out), allocates nothing for a tag without surrounding spaces.
+     *
+     * @param tag tag to search for
+     * @param action called once per matching song
+     */
+    public void forEachByTag(String tag, Consumer<? super Song> action) {
+        Version v = published;
+        Song[] songs = v.songs;
+        String query = Song.normalizeTag(tag);
+        if (query == null) return;
+        for (int i = 0; i < v.size; i++) {
+            Song s = songs[i];
+            if (s != null && s.containsNormalizedTag(query)) action.accept(s);
+        }
+    }
+
+    /**
+     * Visits songs carrying the tag in playlist order until the visitor returns false,
+     * e.g. to stop after the first few matches without scanning the rest of the playlist.
+     *
+     * @param tag tag to search for
+     * @param visitor called per matching song; return false to stop
+     * @return number of songs visited
+     */
+    public int scanByTag(String tag, Predicate<? super Song> visitor) {
+        Version v = published;
+        Song[] songs = v.songs;
+        String query = Song.normalizeTag(tag);
+        if (query == null) return 0;
+        int visited = 0;
+        for (int i = 0; i < v.size; i++) {
+            Song s = songs[i];
+            if (s != null && s.containsNormalizedTag(query)) {
+                visited++;
+                if (!visitor.test(s)) break;
+            }
+        }
+        return visited;
+    }
+
     /**
      * Returns a trimmed copy of all songs currently in the playlist.
+     * Reads the latest published version, so it never waits for or observes a write in progress.
      *
      * @return array of songs of length size
      */
     public Song[] getAllSongs() {
-        Song[] copy = new Song[size]; // allocate exact-length array
-        for (int i = 0; i < size; i++) { // copy used songs
-            copy[i] = catalogue[i]; // copy entry
+        Version v = published;
+        Song[] copy = new Song[v.size]; // allocate exact-length array
+        for (int i = 0; i < v.size; i++) { // copy used songs
+            copy[i] = v.songs[i]; // copy entry
         }
         return copy; // return clone
     }
 
+    /**
+     * Pins the current version for a long-running reader such as an export.
+     * Costs O(1): the snapshot shares the published arrays, and later writes never touch them.
+     * Close it when done so the version can be garbage collected.
+     *
+     * @return snapshot of the playlist as of now
+     */
+    public PlaylistSnapshot snapshot() {
+        Version v = published;
+        openSnapshots.incrementAndGet();
+        return new PlaylistSnapshot(v.songs, v.size, v.number, openSnapshots);
+    }
+
+    /**
+     * @return number of the latest published version; increases with every write
+     */
+    public long getVersion() {
+        return published.number;
+    }
+
+    /**
+     * @return number of snapshots taken and not yet closed
+     */
+    public int openSnapshots() {
+        return openSnapshots.get();
+    }
+
     /**
      * Finds the song with the highest rating (first occurrence when tied).
+     * Songs rated NaN are passed over, except that a NaN-rated first song is returned as it always was.
      *
      * @return most popular song, or null if playlist is empty or only nulls
      */
     public Song findMostPopular() {
+        Version v = published; // read one consistent version
+        int size = v.size;
         if (size == 0) return null; // empty playlist
+        int first = 0; // first stored song: it starts as the best, even when rated NaN
+        while (first < size && v.songs[first] == null) first++;
+        if (first == size) return null; // only nulls
+        double[][] r = v.ratings; // scan the primitive column, not the songs
+        double firstRating = RatingColumn.get(r, first);
+        if (firstRating != firstRating) return v.songs[first]; // nothing compares greater than NaN
+        if (size >= parallelThreshold) { // big: fork-join over the rating column
+            int best = ParallelScans.indexOfMaxRating(v.ratings, size);
+            return best >= 0 ? v.songs[best] : null;
+        }
         int bestIndex = -1; // track index of best
         double bestRating = Double.NEGATIVE_INFINITY; // track best rating
 
-        for (int i = 0; i < size; i++) { // scan songs
-            Song s = catalogue[i]; // current song
-            if (s == null) continue; // skip null slots
-            double rating = s.getRating(); // song rating
-            if (bestIndex == -1 || rating > bestRating) { // better rating?
-                bestRating = rating; // update best rating
-                bestIndex = i; // remember index
+        for (int base = 0; base < size; base += RatingColumn.CHUNK_SIZE) { // scan chunk by chunk
+            double[] chunk = r[base >>> RatingColumn.CHUNK_BITS];
+            int end = Math.min(RatingColumn.CHUNK_SIZE, size - base);
+            for (int j = 0; j < end; j++) { // scan ratings
+                double rating = chunk[j]; // song rating (NaN for null slots)
+                if (rating > bestRating || (bestIndex == -1 && rating == rating)) { // better rating (NaN never is)?
+                    bestRating = rating; // update best rating
+                    bestIndex = base + j; // remember index
+                }
             }
         }
 
-        return bestIndex >= 0 ? catalogue[bestIndex] : null; // return best or null
+        return bestIndex >= 0 ? v.songs[bestIndex] : null; // return best or null
+    }
+
+    /**
+     * All songs whose artist matches, ignoring case, in no particular order; a song stored twice appears twice.
+     *
+     * @param artist artist to look up
+     * @return matching songs (possibly empty)
+     */
+    public synchronized Song[] findByArtist(String artist) {
+        buildIndexes();
+        return artistIndex.lookup(artist);
+    }
+
+    /**
+     * All songs whose album matches, ignoring case, in no particular order; a song stored twice appears twice.
+     *
+     * @param album album to look up
+     * @return matching songs (possibly empty)
+     */
+    public synchronized Song[] findByAlbum(String album) {
+        buildIndexes();
+        return albumIndex.lookup(album);
+    }
+
+    /**
+     * All songs whose genre matches, ignoring case (so "Punk rock" finds "Punk Rock"), in no particular order;
+     * a song stored twice appears twice.
+     *
+     * @param genre genre to look up
+     * @return matching songs (possibly empty)
+     */
+    public synchronized Song[] findByGenre(String genre) {
+        buildIndexes();
+        return genreIndex.lookup(genre);
+    }
+
+    /**
+     * Tags that most often appear on the same songs as the given tag (case-insensitive).
+     * Answered from incrementally maintained counts, without scanning songs.
+     *
+     * @param tag tag to find companions for
+     * @param k maximum number of tags to return
+     * @return up to k related tags, most frequent first (possibly empty)
+     */
+    public synchronized String[] relatedTags(String tag, int k) {
+        buildIndexes();
+        return tagPairs.topRelated(tag, k);
+    }
+
+    /**
+     * Number of songs that carry both tags (case-insensitive).
+     *
+     * @param first first tag
+     * @param second second tag
+     * @return co-occurrence count
+     */
+    public synchronized int coOccurrenceCount(String first, String second) {
+        buildIndexes();
+        return tagPairs.count(first, second);
+    }
+
+    /**
+     * Finds the stored song with exactly this title, artist and album (the fields Song.equals compares).
+     * Answered from a hash index, without scanning the playlist.
+     *
+     * @param title song title
+     * @param artist song artist
+     * @param album song album
+     * @return the first matching song added, or null if there is none
+     */
+    public synchronized Song findSong(String title, String artist, String album) {
+        return identities().get(new SongIdentity(title, artist, album));
+    }
+
+    /**
+     * Songs whose tags are most like the given song's, ranked by Jaccard similarity of their tag sets,
+     * with songs of the same genre first on ties. Candidates come from locality-sensitive hash buckets,
+     * so this is approximate and its cost does not grow with the playlist; the song itself is excluded.
+     *
+     * @param song song to find neighbours for (need not be in this playlist)
+     * @param k maximum number of songs to return
+     * @return up to k similar songs, most similar first (possibly empty)
+     */
+    public synchronized Song[] findSimilar(Song song, int k) {
+        buildIndexes();
+        return similarity.similarTo(song, k);
+    }
+
+    /**
+     * Builds a "play next" queue over the current version of the playlist: songs are drawn
+     * without replacement, weighted by rating, never repeating an artist within artistGap songs
+     * while another artist is available. Later changes to the playlist do not affect the queue.
+     *
+     * @param tag only queue songs with this tag (case-insensitive), or null for all songs
+     * @param artistGap number of following songs that may not share an artist (0 for no limit)
+     * @param seed random seed; the same seed and version give the same queue
+     * @return queue whose songs are drawn as it is iterated
+     */
+    public SongQueue queue(String tag, int artistGap, long seed) {
+        Version v = published; // read one consistent version
+        return new SongQueue(v.songs, v.ratings, v.size, tag, artistGap, seed);
+    }
+
+    /**
+     * Feed of changes made from now on: songs added (one event per addSong, one per addSongs batch)
+     * and tags added to stored songs. Subscribers get events on the common fork-join pool at their
+     * own pace; writers never wait for them.
+     *
+     * @return this playlist's change publisher
+     */
+    public synchronized PlaylistChangeFeed changeFeed() {
+        if (feed == null) feed = new PlaylistChangeFeed(PlaylistChangeFeed.DEFAULT_CAPACITY, ForkJoinPool.commonPool());
+        return feed;
+    }
+
+    /**
+     * Records that a song was played. Safe to call from many threads at a high rate:
+     * it updates striped per-song counters and takes no lock unless the song may be
+     * entering the most-popular set.
+     *
+     * @param s song that was played
+     * @return false if the song is not in this playlist
+     */
+    public boolean recordPlay(Song s) {
+        if (s == null) return false;
+        return playTracker().recordPlay(s, 1);
+    }
+
+    /**
+     * @param s song to look up
+     * @return number of plays recorded for the song
+     */
+    public long playCount(Song s) {
+        PopularityTracker t = plays;
+        return t == null || s == null ? 0 : t.playCount(s);
+    }
+
+    /**
+     * Current popularity of a song: its plays, each weighted by how recent it is
+     * (a play loses half its weight every POPULARITY_HALF_LIFE_SECONDS).
+     *
+     * @param s song to look up
+     * @return decayed play count (0 if never played)
+     */
+    public double popularityNow(Song s) {
+        PopularityTracker t = plays;
+        return t == null || s == null ? 0 : t.popularity(s);
+    }
+
+    /**
+     * Songs with the highest decayed play counts right now, as opposed to findMostPopular's static rating.
+     * Answered from a maintained top set of POPULAR_NOW_CAPACITY songs, without scanning the playlist,
+     * while plays keep being recorded.
+     *
+     * @param k number of songs wanted (at most POPULAR_NOW_CAPACITY are kept)
+     * @return up to k songs, most popular first (empty if nothing was played)
+     */
+    public Song[] mostPopularNow(int k) {
+        PopularityTracker t = plays;
+        return t == null ? NO_SONGS : t.top(k);
+    }
+
+    /**
+     * The play tracker, created and filled with the stored songs on first use.
+     */
+    private PopularityTracker playTracker() {
+        PopularityTracker t = plays;
+        if (t != null) return t;
+        synchronized (this) {
+            if (plays == null) {
+                t = new PopularityTracker(POPULAR_NOW_CAPACITY, POPULARITY_HALF_LIFE_SECONDS);
+                for (int i = 0; i < size; i++) {
+                    if (catalogue[i] != null) t.register(catalogue[i]);
+                }
+                plays = t;
+            }
+            return plays;
+        }
+    }
+
+    /**
+     * Min, max and mean rating over all songs (null slots and songs rated NaN ignored).
+     *
+     * @return summary of the rating column
+     */
+    public RatingStats ratingStats() {
+        Version version = published;
+        double[][] r = version.ratings;
+        int n = version.size;
+        if (version.nanRatings == 0) { // fast path: branch-free loops the JIT can unroll and vectorize
+            if (n == 0) return new RatingStats(0, Double.NaN, Double.NaN, Double.NaN);
+            double min = r[0][0];
+            double max = r[0][0];
+            double total = 0;
+            for (int base = 0; base < n; base += RatingColumn.CHUNK_SIZE) {
+                double[] chunk = r[base >>> RatingColumn.CHUNK_BITS];
+                int end = Math.min(RatingColumn.CHUNK_SIZE, n - base);
+                for (int j = 0; j < end; j++) {
+                    min = Math.min(min, chunk[j]);
+                    max = Math.max(max, chunk[j]);
+                }
+                total += sum(chunk, end);
+            }
+            return new RatingStats(n, min, max, total / n);
+        }
+
+        int count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            double v = RatingColumn.get(r, i);
+            if (v != v) continue; // null slot or NaN rating
+            count++;
+            if (v < min) min = v;
+            if (v > max) max = v;
+            total += v;
+        }
+        if (count == 0) return new RatingStats(0, Double.NaN, Double.NaN, Double.NaN);
+        return new RatingStats(count, min, max, total / count);
+    }
+
+    /**
+     * Counts ratings in equal-width buckets over [min, max].
+     * Ratings below min land in the first bucket, ratings above max in the last one; NaN ratings are not counted.
+     *
+     * @param buckets number of buckets
+     * @param min lower bound of the first bucket
+     * @param max upper bound of the last bucket
+     * @return bucket counts
+     */
+    public int[] ratingHistogram(int buckets, double min, double max) {
+        if (buckets <= 0 || !(max > min)) {
+            throw new IllegalArgumentException("need buckets > 0 and max > min");
+        }
+        int[] counts = new int[buckets];
+        Version version = published;
+        double[][] r = version.ratings;
+        double scale = buckets / (max - min);
+        int last = buckets - 1;
+        for (int i = 0; i < version.size; i++) {
+            double v = RatingColumn.get(r, i);
+            if (v != v) continue; // skip null slots and NaN ratings
+            int b = (int) ((v - min) * scale);
+            if (b < 0) b = 0;
+            if (b > last) b = last;
+            counts[b]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Average rating per genre; genres that differ only in case are grouped together.
+     *
+     * @return genre -> average rating, ordered case-insensitively
+     */
+    public Map<String, Double> averageRatingByGenre() {
+        TreeMap<String, double[]> totals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // {sum, count}
+        Version v = published;
+        for (int i = 0; i < v.size; i++) {
+            Song s = v.songs[i];
+            if (s == null || s.getGenre() == null) continue;
+            accumulate(totals, s.getGenre(), RatingColumn.get(v.ratings, i));
+        }
+        return averages(totals);
+    }
+
+    /**
+     * Average rating per tag (case-insensitive), over every song carrying the tag.
+     *
+     * @return tag -> average rating, ordered case-insensitively
+     */
+    public Map<String, Double> averageRatingByTag() {
+        TreeMap<String, double[]> totals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // {sum, count}
+        Version v = published;
+        for (int i = 0; i < v.size; i++) {
+            Song s = v.songs[i];
+            if (s == null) continue;
+            String[] tags = s.getTags();
+            for (int t = 0; t < s.getTagCount(); t++) {
+                if (tags[t] != null) accumulate(totals, tags[t], RatingColumn.get(v.ratings, i));
+            }
+        }
+        return averages(totals);
     }
 
     /**
@@ -113,13 +616,17 @@ public class Playlist {
      * @return array of unique tags (may be empty)
      */
     public String[] getAllTags() {
-        if (size == 0) return new String[0]; // no songs
+        Version v = published; // read one consistent version
+        Song[] songs = v.songs;
+        int size = v.size;
+        if (size == 0) return NO_TAGS; // no songs
+        if (size >= parallelThreshold) return ParallelScans.allTags(songs, size); // big: fork-join
 
         String[] unique = new String[8]; // initial buffer
         int uniqueCount = 0; // number of unique tags stored
 
         for (int i = 0; i < size; i++) { // scan songs
-            Song s = catalogue[i]; // current song
+            Song s = songs[i]; // current song
             if (s == null) continue; // skip nulls
             String[] tags = s.getTags(); // song tags array
             int tagCount = s.getTagCount(); // used tags count
@@ -144,12 +651,26 @@ public class Playlist {
     }
 
     /**
-     * Sorts songs in-place in descending order of tag count using merge sort.
+     * Sorts songs in descending order of tag count using merge sort.
+     * The sort runs on a fresh copy that is published when done, so readers of the
+     * previous version (getAllSongs, open snapshots) never see songs move.
      */
-    public void sortSongsByNumTags() {
+    public synchronized void sortSongsByNumTags() {
         if (catalogue == null || size <= 1) return; // nothing to sort
+        Song[] sorted = new Song[catalogue.length]; // copy-on-write
+        for (int i = 0; i < size; i++) {
+            sorted[i] = catalogue[i];
+        }
+        catalogue = sorted;
+        double[] sortedRatings = ratings.toArray(size); // sorted flat, then chunked again
+
         Song[] temp = new Song[size]; // temp buffer for merging
-        mergeSort(0, size - 1, temp); // perform merge sort
+        double[] tempRatings = new double[size]; // ratings move with their songs
+        mergeSort(0, size - 1, temp, sortedRatings, tempRatings); // perform merge sort
+        ratings = new RatingColumn(sortedRatings, size, catalogue.length);
+
+        slots = null; // songs moved; slots() re-records them when next needed
+        publish();
     }
 
     /**
@@ -157,14 +678,50 @@ public class Playlist {
      *
      * @param toBeAdded songs to append
      */
-    public void addSongs(Song[] toBeAdded) {
-        if (toBeAdded.length == 0) return; // nothing to add
+    public synchronized void addSongs(Song[] toBeAdded) {
+        append(toBeAdded, false);
+    }
+
+    /**
+     * Appends the songs that are not already present, like addSong, but publishes them as one version.
+     * A song equal to one stored before, or to one earlier in the array, is skipped.
+     *
+     * @param toBeAdded songs to append (null entries are ignored)
+     * @return number of songs added
+     */
+    public synchronized int addNewSongs(Song[] toBeAdded) {
+        return append(toBeAdded, true);
+    }
+
+    private int append(Song[] toBeAdded, boolean skipDuplicates) {
+        if (toBeAdded.length == 0) return 0; // nothing to add
+        int start = size; // first slot of this batch
         for (Song s : toBeAdded) { // iterate songs to add
             if (s == null) continue; // skip nulls
+            if (skipDuplicates && identities().containsKey(SongIdentity.of(s))) continue; // track records each one
             ensureCapacity(size + 1); // grow if needed
             catalogue[size] = s; // append song
+            setRatingSlot(size, s); // mirror rating
+            track(s, size); // index and watch for changes
             size++; // increment size
         }
+        if (size == start) return 0; // nothing new: keep the current version
+        publish(); // readers see the whole batch at once
+        if (feed != null) { // one event for the whole batch
+            Song[] batch = new Song[size - start];
+            for (int i = start; i < size; i++) {
+                batch[i - start] = catalogue[i];
+            }
+            feed.songsAdded(batch);
+        }
+        return size - start;
+    }
+
+    /**
+     * Makes the current state visible to readers as a new version.
+     */
+    private void publish() {
+        published = new Version(catalogue, ratings.publish(size), size, nanRatings, ++versionNumber);
     }
 
     /**
@@ -176,6 +733,7 @@ public class Playlist {
     private void ensureCapacity(int minCapacity) {
         if (catalogue == null) { // if no array yet
             catalogue = new Song[minCapacity]; //create new array
+            ratings = new RatingColumn(minCapacity); //matching rating column
             return;
         }
         if (catalogue.length >= minCapacity) return; //already enough space
@@ -190,6 +748,254 @@ public class Playlist {
         }
 
         catalogue = grown; //replace backing array
+        ratings.ensureCapacity(newCapacity); // adds chunks, existing ratings stay where they are
+    }
+
+    /**
+     * Records a newly stored song in the lookup structures that exist yet
+     * and starts listening for its changes.
+     */
+    private void track(Song s, int slot) {
+        if (s == null) return;
+        if (slots != null) recordSlot(s, slot);
+        if (identities != null) {
+            Song holder = identities.putIfAbsent(SongIdentity.of(s), s);
+            if (holder != null && holder != s) sharedIdentities = true;
+        }
+        if (artistIndex != null) index(s);
+        if (plays != null) plays.register(s);
+        s.addListener(songListener);
+    }
+
+    /**
+     * Builds the secondary indexes from the stored songs the first time a lookup needs them;
+     * from then on track and the song listener keep them current.
+     */
+    private void buildIndexes() {
+        if (artistIndex != null) return; // already built
+        artistIndex = new SongFieldIndex();
+        albumIndex = new SongFieldIndex();
+        genreIndex = new SongFieldIndex();
+        tagPairs = new TagCooccurrence();
+        similarity = new SimilarityIndex();
+        for (int i = 0; i < size; i++) {
+            if (catalogue[i] != null) index(catalogue[i]); // one entry per slot, like track
+        }
+    }
+
+    private void index(Song s) {
+        artistIndex.add(s.getArtist(), s);
+        albumIndex.add(s.getAlbum(), s);
+        genreIndex.add(s.getGenre(), s);
+        tagPairs.addSong(s);
+        similarity.addSong(s);
+    }
+
+    /**
+     * Slot map, built from the stored songs on first use; track keeps it current afterwards.
+     */
+    private IdentityHashMap<Song, Integer> slots() {
+        if (slots == null) {
+            slots = new IdentityHashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (catalogue[i] != null) recordSlot(catalogue[i], i);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Identity index, built from the stored songs on first use; track and rekey keep it current afterwards.
+     */
+    private HashMap<SongIdentity, Song> identities() {
+        if (identities == null) {
+            identities = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                Song s = catalogue[i];
+                if (s == null) continue;
+                Song holder = identities.putIfAbsent(SongIdentity.of(s), s);
+                if (holder != null && holder != s) sharedIdentities = true;
+            }
+        }
+        return identities;
+    }
+
+    private void recordSlot(Song s, int slot) {
+        Integer previous = slots.put(s, slot);
+        if (previous != null) slots.put(s, MULTIPLE); // same object stored twice
+    }
+
+    /**
+     * Listener registered on every stored song; forwards changes to the derived structures.
+     */
+    private class SongWatcher implements SongListener {
+        @Override
+        public void songChanged(Song song, Song.Field field, Object oldValue) {
+            Playlist.this.songChanged(song, field, oldValue);
+        }
+
+        @Override
+        public void tagAdded(Song song, String tag) {
+            tagWasAdded(song, tag);
+        }
+    }
+
+    /**
+     * Updates the tag-derived structures after Song.addTag.
+     */
+    private synchronized void tagWasAdded(Song song, String tag) {
+        if (feed != null) feed.tagAdded(song, tag);
+        if (artistIndex == null) return; // nothing built yet
+        int times = occurrences(song);
+        for (int i = 0; i < times; i++) {
+            tagPairs.tagAdded(song, tag);
+        }
+        similarity.tagAdded(song, tag);
+    }
+
+    /**
+     * How many slots hold this exact song object.
+     */
+    private int occurrences(Song s) {
+        Integer slot = slots().get(s);
+        if (slot == null) return 0;
+        if (slot != MULTIPLE) return 1;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (catalogue[i] == s) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Updates derived structures (indexes, rating column) for one changed song, without rescanning the playlist.
+     */
+    private synchronized void songChanged(Song s, Song.Field field, Object oldValue) {
+        if (field == Song.Field.RATING) {
+            if (refreshRating(s)) publish();
+            return;
+        }
+        SongIdentity oldIdentity = SongIdentity.before(s, field, oldValue);
+        // without an identity index there is nothing to rekey: it will be built from the current values
+        if (oldIdentity != null && identities != null && slots().containsKey(s)) rekey(s, oldIdentity);
+        if (artistIndex == null) return; // indexes not built yet; they will read the current values
+        switch (field) {
+            case TAG_COUNT:
+                int times = occurrences(s);
+                for (int i = 0; i < times; i++) {
+                    tagPairs.tagCountChanged(s, (Integer) oldValue);
+                }
+                similarity.tagsReset(s);
+                break;
+            case ARTIST:
+                artistIndex.move(s.getArtist(), s);
+                break;
+            case ALBUM:
+                albumIndex.move(s.getAlbum(), s);
+                break;
+            case GENRE:
+                genreIndex.move(s.getGenre(), s);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Moves a song whose title, artist or album changed to its new key in the identity index.
+     */
+    private void rekey(Song s, SongIdentity oldIdentity) {
+        if (identities.get(oldIdentity) == s) {
+            identities.remove(oldIdentity);
+            if (sharedIdentities) { // another stored song may still have the old identity
+                for (int i = 0; i < size; i++) {
+                    Song other = catalogue[i];
+                    if (other != null && other != s && oldIdentity.matches(other)) {
+                        identities.put(oldIdentity, other);
+                        break;
+                    }
+                }
+            }
+        }
+        Song holder = identities.putIfAbsent(SongIdentity.of(s), s);
+        if (holder != null && holder != s) sharedIdentities = true;
+    }
+
+    /**
+     * Rewrites the rating column entries of a song whose rating changed. The column copies only the
+     * chunks published versions can see, so they keep the ratings they were built with.
+     *
+     * @return true if the song is stored here and its ratings were rewritten
+     */
+    private boolean refreshRating(Song s) {
+        Integer slot = slots().get(s);
+        if (slot == null) return false; // not stored here
+        if (slot != MULTIPLE) {
+            replaceRatingSlot(slot, s);
+            return true;
+        }
+        for (int i = 0; i < size; i++) { // rare: same object stored more than once
+            if (catalogue[i] == s) replaceRatingSlot(i, s);
+        }
+        return true;
+    }
+
+    private void replaceRatingSlot(int index, Song s) {
+        double previous = ratings.get(index);
+        if (previous != previous) nanRatings--;
+        setRatingSlot(index, s);
+    }
+
+    /**
+     * Stores a song's rating in the rating column, keeping the NaN count in step.
+     */
+    private void setRatingSlot(int index, Song s) {
+        double value = s == null ? Double.NaN : s.getRating();
+        if (value != value) nanRatings++;
+        ratings.set(index, value);
+    }
+
+    /**
+     * Sum of r[0..n-1] with four independent accumulators so the adds can overlap.
+     */
+    private static double sum(double[] r, int n) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += r[i];
+            s1 += r[i + 1];
+            s2 += r[i + 2];
+            s3 += r[i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += r[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Adds one rating to the {sum, count} pair stored under key.
+     */
+    private static void accumulate(TreeMap<String, double[]> totals, String key, double rating) {
+        if (rating != rating) return; // NaN ratings don't count
+        double[] entry = totals.get(key);
+        if (entry == null) {
+            entry = new double[2];
+            totals.put(key, entry);
+        }
+        entry[0] += rating;
+        entry[1]++;
+    }
+
+    /**
+     * Turns {sum, count} pairs into averages.
+     */
+    private static Map<String, Double> averages(TreeMap<String, double[]> totals) {
+        TreeMap<String, Double> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, double[]> e : totals.entrySet()) {
+            result.put(e.getKey(), e.getValue()[0] / e.getValue()[1]);
+        }
+        return result;
     }
 
     /**
@@ -221,18 +1027,18 @@ public class Playlist {
     /**
      * Recursively sorts catalogue[left..right] by descending tag count using merge sort.
      */
-    private void mergeSort(int left, int right, Song[] temp) {
+    private void mergeSort(int left, int right, Song[] temp, double[] ratings, double[] tempRatings) {
         if (left >= right) return; // base case single element
         int mid = (left + right) / 2; // midpoint
-        mergeSort(left, mid, temp); // sort left half
-        mergeSort(mid + 1, right, temp); // sort right half
-        merge(left, mid, right, temp); // merge halves
+        mergeSort(left, mid, temp, ratings, tempRatings); // sort left half
+        mergeSort(mid + 1, right, temp, ratings, tempRatings); // sort right half
+        merge(left, mid, right, temp, ratings, tempRatings); // merge halves
     }
 
     /**
      * Merges two sorted halves (by descending tag count) into the temp array, then copies back.
      */
-    private void merge(int left, int mid, int right, Song[] temp) {
+    private void merge(int left, int mid, int right, Song[] temp, double[] ratings, double[] tempRatings) {
         int i = left; // pointer into left half
         int j = mid + 1; // pointer into right half
         int k = left; // pointer into temp
@@ -242,9 +1048,11 @@ public class Playlist {
             int rightCount = tagCountSafe(catalogue[j]); // tag count right item
             if (leftCount >= rightCount) { // left has more/equal tags
                 temp[k] = catalogue[i]; // take left item
+                tempRatings[k] = ratings[i];
                 i++; // advance left pointer
             } else {
                 temp[k] = catalogue[j]; // take right item
+                tempRatings[k] = ratings[j];
                 j++; // advance right pointer
             }
             k++; // advance temp pointer
@@ -252,18 +1060,21 @@ public class Playlist {
 
         while (i <= mid) { // copy remaining left items
             temp[k] = catalogue[i]; // copy item
+            tempRatings[k] = ratings[i];
             i++; // advance left pointer
             k++; // advance temp pointer
         }
 
         while (j <= right) { // copy remaining right items
             temp[k] = catalogue[j]; // copy item
+            tempRatings[k] = ratings[j];
             j++; // advance right pointer
             k++; // advance temp pointer
         }
 
         for (int idx = left; idx <= right; idx++) { // copy merged back
             catalogue[idx] = temp[idx]; // overwrite original slice
+            ratings[idx] = tempRatings[idx];
         }
     }
 
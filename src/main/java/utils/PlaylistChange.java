@@ -0,0 +1,70 @@
+package utils;
+
+import business.Song;
+
+/**
+ * One mutation of a Playlist, as delivered by its change feed (see PlaylistChangeFeed).
+ * Sequence numbers start at 1 and increase by one per event with no gaps, so a subscriber can
+ * tell where it stopped and resume from there.
+ */
+public final class PlaylistChange {
+    /**
+     * Kinds of change.
+     */
+    public enum Type {
+        SONG_ADDED, // one song, from addSong
+        SONGS_ADDED, // a batch, from addSongs (and the file merges built on it)
+        TAG_ADDED // a tag added to a stored song
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Song[] songs;
+    private final String tag;
+
+    PlaylistChange(long sequence, Type type, Song[] songs, String tag) {
+        this.sequence = sequence;
+        this.type = type;
+        this.songs = songs;
+        this.tag = tag;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the song added or tagged (the first one for SONGS_ADDED)
+     */
+    public Song getSong() {
+        return songs[0];
+    }
+
+    /**
+     * @return copy of the songs concerned (one, except for SONGS_ADDED)
+     */
+    public Song[] getSongs() {
+        return songs.clone();
+    }
+
+    public int getSongCount() {
+        return songs.length;
+    }
+
+    /**
+     * @return the tag for TAG_ADDED, null otherwise
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + (tag != null ? " '" + tag + "'" : "") + " (" + songs.length + " song"
+                + (songs.length == 1 ? "" : "s") + ")";
+    }
+}
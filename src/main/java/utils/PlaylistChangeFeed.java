@@ -0,0 +1,229 @@
+package utils;
+
+import business.Song;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Publisher of a Playlist's changes, obtained with Playlist.changeFeed().
+ *
+ * Writers append events to a fixed-size ring buffer and return at once: they never wait for
+ * subscribers. Each subscription delivers from the ring on the executor, as fast as its
+ * request(n) demand allows. A subscriber that falls more than capacity events behind has lost
+ * events it can no longer get, so it receives onError (a FeedLagException) and can resubscribe,
+ * e.g. after reloading from a snapshot.
+ *
+ * subscribe(s) starts with the next change; subscribe(s, sequence) resumes from an earlier
+ * sequence number, as long as the ring still holds it.
+ */
+public class PlaylistChangeFeed implements Flow.Publisher<PlaylistChange> {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final AtomicReferenceArray<PlaylistChange> ring;
+    private final int capacity;
+    private final Executor executor;
+    private volatile long lastSequence; // written by the (single, locked) playlist writer
+    private final CopyOnWriteArrayList<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Signalled to a subscriber whose events were overwritten before it requested them.
+     */
+    public static class FeedLagException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+        private final long missedFrom;
+
+        FeedLagException(long missedFrom, long oldestRetained) {
+            super("change feed no longer holds event " + missedFrom + " (oldest retained: " + oldestRetained + ")");
+            this.missedFrom = missedFrom;
+        }
+
+        /**
+         * @return first sequence number the subscriber did not receive
+         */
+        public long getMissedFrom() {
+            return missedFrom;
+        }
+    }
+
+    PlaylistChangeFeed(int capacity, Executor executor) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        if (executor == null) throw new IllegalArgumentException("executor is null");
+        this.capacity = capacity;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.executor = executor;
+    }
+
+    /**
+     * @return sequence number of the latest change (0 if none yet)
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return number of past changes kept for slow or resuming subscribers
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Delivers changes made after this call.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super PlaylistChange> subscriber) {
+        subscribe(subscriber, lastSequence + 1);
+    }
+
+    /**
+     * Delivers changes starting at a sequence number, e.g. one past the last event seen before a restart.
+     * If that change is no longer held, the subscriber gets onError right after onSubscribe.
+     * onSubscribe is called on the executor, like every other signal, so a request(n) made inside
+     * it can't start deliveries before it has returned.
+     *
+     * @param subscriber receiver of the changes
+     * @param fromSequence first sequence number to deliver
+     */
+    public void subscribe(Flow.Subscriber<? super PlaylistChange> subscriber, long fromSequence) {
+        if (subscriber == null) throw new NullPointerException("subscriber is null");
+        FeedSubscription subscription = new FeedSubscription(subscriber, Math.max(1, fromSequence));
+        subscriptions.add(subscription);
+        subscription.signal(); // the first drain calls onSubscribe, so it is serialized with onNext
+    }
+
+    // Writer side: called by Playlist while it holds its own lock, so appends never race
+
+    void songAdded(Song s) {
+        append(PlaylistChange.Type.SONG_ADDED, new Song[]{s}, null);
+    }
+
+    void songsAdded(Song[] batch) {
+        append(PlaylistChange.Type.SONGS_ADDED, batch, null);
+    }
+
+    void tagAdded(Song s, String tag) {
+        append(PlaylistChange.Type.TAG_ADDED, new Song[]{s}, tag);
+    }
+
+    private void append(PlaylistChange.Type type, Song[] songs, String tag) {
+        long sequence = lastSequence + 1;
+        ring.set(slot(sequence), new PlaylistChange(sequence, type, songs, tag));
+        lastSequence = sequence; // publishes the slot to readers
+        for (FeedSubscription s : subscriptions) {
+            s.signal();
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    /**
+     * @return the change with this sequence number, or null if it has been overwritten
+     */
+    private PlaylistChange eventAt(long sequence) {
+        PlaylistChange e = ring.get(slot(sequence));
+        return e != null && e.getSequence() == sequence ? e : null;
+    }
+
+    /**
+     * One subscriber's position in the feed. Signals are serialized by the work-in-progress
+     * counter: whoever moves it from 0 schedules a drain, and the drain loops until no signal is missed.
+     * The first drain calls onSubscribe; requests made inside it only bump the counter.
+     */
+    private final class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super PlaylistChange> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private long nextSequence; // only touched by the drain
+        private boolean subscribed; // onSubscribe has been called (only touched by the drain)
+        private Throwable badRequest; // set by request(n <= 0), reported by the drain
+
+        FeedSubscription(Flow.Subscriber<? super PlaylistChange> subscriber, long fromSequence) {
+            this.subscriber = subscriber;
+            this.nextSequence = fromSequence;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("request must be positive, was " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> {
+                    long sum = current + add;
+                    return sum < 0 ? Long.MAX_VALUE : sum; // unbounded once it overflows
+                });
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (cancelled) return;
+            if (wip.getAndIncrement() == 0) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                if (cancelled) return;
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (Throwable t) {
+                        cancel(); // a failing subscriber is treated as cancelled
+                        return;
+                    }
+                    if (cancelled) return;
+                }
+                if (badRequest != null) {
+                    fail(badRequest);
+                    return;
+                }
+                long requested = demand.get();
+                long emitted = 0;
+                long last = lastSequence;
+                if (last - nextSequence + 1 > capacity) { // lapped by writers: events are gone
+                    fail(new FeedLagException(nextSequence, last - capacity + 1));
+                    return;
+                }
+                while (emitted != requested && nextSequence <= last) {
+                    if (cancelled) return;
+                    PlaylistChange e = eventAt(nextSequence);
+                    if (e == null) { // overwritten while we were delivering
+                        fail(new FeedLagException(nextSequence, lastSequence - capacity + 1));
+                        return;
+                    }
+                    try {
+                        subscriber.onNext(e);
+                    } catch (Throwable t) {
+                        cancel(); // a failing subscriber is treated as cancelled
+                        return;
+                    }
+                    nextSequence++;
+                    emitted++;
+                }
+                if (emitted != 0 && requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) return;
+            }
+        }
+
+        private void fail(Throwable t) {
+            cancel();
+            subscriber.onError(t);
+        }
+    }
+}
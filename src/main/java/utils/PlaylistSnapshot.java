@@ -0,0 +1,72 @@
+package utils;
+
+import business.Song;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pinned, read-only version of a Playlist, taken with Playlist.snapshot().
+ *
+ * The song list and its order never change while the snapshot is open, whatever writers do to the
+ * playlist, and reading it never blocks them. The songs themselves are shared, not copied, so
+ * their fields still reflect later setter calls. Close the snapshot when done; after that its
+ * version can be garbage collected once no other reader holds it.
+ */
+public final class PlaylistSnapshot implements AutoCloseable {
+    private Song[] songs; // null once closed
+    private final int size;
+    private final long version;
+    private final AtomicInteger openCounter;
+
+    PlaylistSnapshot(Song[] songs, int size, long version, AtomicInteger openCounter) {
+        this.songs = songs;
+        this.size = size;
+        this.version = version;
+        this.openCounter = openCounter;
+    }
+
+    /**
+     * @return playlist version this snapshot shows
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index position in the snapshot
+     * @return song at that position
+     */
+    public Song get(int index) {
+        Song[] current = songs;
+        if (current == null) throw new IllegalStateException("snapshot is closed");
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("position " + index + " of " + size);
+        return current[index];
+    }
+
+    /**
+     * @return copy of the snapshot's songs
+     */
+    public Song[] toArray() {
+        Song[] current = songs;
+        if (current == null) throw new IllegalStateException("snapshot is closed");
+        Song[] copy = new Song[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = current[i];
+        }
+        return copy;
+    }
+
+    /**
+     * Releases the pinned version. Closing twice has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (songs == null) return;
+        songs = null; // drop the reference so the old arrays can be collected
+        openCounter.decrementAndGet();
+    }
+}
@@ -0,0 +1,276 @@
+package utils;
+
+import business.Song;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Play counts and time-decayed popularity for the songs of one Playlist, fed from many threads.
+ *
+ * Each song has striped counters (LongAdder/DoubleAdder), so concurrent plays don't contend.
+ * Popularity decays exponentially with a fixed half-life, using forward decay: a play at time t
+ * adds exp(lambda * (t - landmark)) and a score is read as sum * exp(-lambda * (now - landmark)).
+ * Scores never have to be decayed in place, and their order only changes when songs are played.
+ * The landmark moves forward (a new epoch) before the weights get too large for a double.
+ *
+ * The K most popular songs are kept in a small set. A play only takes its lock when the song
+ * is not in the set and its score beats the set's last known minimum; members' scores are
+ * always read fresh from their counters.
+ */
+final class PopularityTracker {
+    private static final double MAX_EXPONENT = 300; // start a new epoch before exp() gets near overflow
+
+    private final double lambda; // decay rate per second
+    private final long startNanos;
+    private final ConcurrentHashMap<SongKey, Counter> counters = new ConcurrentHashMap<>();
+    private volatile Epoch epoch;
+
+    // Top-K set, guarded by topLock
+    private final Object topLock = new Object();
+    private final Counter[] top;
+    private int topSize;
+    private volatile double threshold = Double.NEGATIVE_INFINITY; // raw score a song must beat to enter
+    private volatile long thresholdEpoch; // epoch the threshold was computed in
+
+    /**
+     * Time origin for weights: plays are weighted relative to landmark (seconds since start).
+     */
+    private static final class Epoch {
+        private final long id;
+        private final double landmark;
+
+        Epoch(long id, double landmark) {
+            this.id = id;
+            this.landmark = landmark;
+        }
+    }
+
+    /**
+     * Decayed sum for one epoch. The cell of the previous epoch is kept so plays that were
+     * still being added to it while the epoch changed are not lost.
+     */
+    private static final class Cell {
+        private final Epoch epoch;
+        private final DoubleAdder sum = new DoubleAdder();
+        private volatile Cell previous;
+
+        Cell(Epoch epoch, Cell previous) {
+            this.epoch = epoch;
+            this.previous = previous;
+        }
+    }
+
+    private static final class Counter {
+        private final Song song;
+        private final LongAdder plays = new LongAdder();
+        private volatile Cell cell;
+        private volatile boolean inTop; // written under topLock
+
+        Counter(Song song, Epoch epoch) {
+            this.song = song;
+            this.cell = new Cell(epoch, null);
+        }
+    }
+
+    /**
+     * Map key comparing songs by reference, since Song.equals depends on mutable fields.
+     */
+    private static final class SongKey {
+        private final Song song;
+
+        SongKey(Song song) {
+            this.song = song;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SongKey && ((SongKey) o).song == song;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(song);
+        }
+    }
+
+    /**
+     * @param capacity number of most popular songs kept ready
+     * @param halfLifeSeconds time for a play's weight to halve
+     */
+    PopularityTracker(int capacity, double halfLifeSeconds) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        if (!(halfLifeSeconds > 0)) throw new IllegalArgumentException("halfLifeSeconds must be positive");
+        this.lambda = Math.log(2) / halfLifeSeconds;
+        this.top = new Counter[capacity];
+        this.startNanos = System.nanoTime();
+        this.epoch = new Epoch(0, 0);
+    }
+
+    /**
+     * Makes a song known to the tracker; plays of unknown songs are ignored.
+     */
+    void register(Song s) {
+        counters.putIfAbsent(new SongKey(s), new Counter(s, epoch));
+    }
+
+    /**
+     * Records plays of a song.
+     *
+     * @return false if the song is not registered
+     */
+    boolean recordPlay(Song s, int times) {
+        Counter c = counters.get(new SongKey(s));
+        if (c == null) return false;
+        double now = seconds();
+        Epoch e = currentEpoch(now);
+        c.plays.add(times);
+        Cell cell = cellFor(c, e); // may belong to a newer epoch if another thread just started one
+        cell.sum.add(times * Math.exp(lambda * (now - cell.epoch.landmark)));
+
+        if (c.inTop) return true; // already ranked; its score is read from the counters
+        double score = rawScore(c, e);
+        if (thresholdEpoch == e.id && score <= threshold) return true; // can't enter the top set
+        admit(c, e);
+        return true;
+    }
+
+    /**
+     * @return total plays recorded for the song (0 if unknown)
+     */
+    long playCount(Song s) {
+        Counter c = counters.get(new SongKey(s));
+        return c == null ? 0 : c.plays.sum();
+    }
+
+    /**
+     * @return current decayed popularity, in plays (a play right now counts 1)
+     */
+    double popularity(Song s) {
+        Counter c = counters.get(new SongKey(s));
+        if (c == null) return 0;
+        double now = seconds();
+        Epoch e = currentEpoch(now);
+        return rawScore(c, e) * Math.exp(-lambda * (now - e.landmark));
+    }
+
+    /**
+     * The k most popular songs right now, most popular first. Costs O(K log K) for the K songs
+     * in the top set, independent of the number of songs or the event rate.
+     */
+    Song[] top(int k) {
+        if (k <= 0) return new Song[0];
+        Counter[] members;
+        synchronized (topLock) {
+            members = Arrays.copyOf(top, topSize);
+        }
+        Epoch e = epoch;
+        int n = members.length;
+        double[] scores = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = rawScore(members[i], e);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        Song[] result = new Song[Math.min(k, n)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = members[order[i]].song;
+        }
+        return result;
+    }
+
+    /**
+     * Puts a song in the top set if it is not full or the song beats its weakest member,
+     * refreshing members' scores from their counters first.
+     */
+    private void admit(Counter c, Epoch e) {
+        synchronized (topLock) {
+            if (c.inTop) return;
+            double score = rawScore(c, e); // plays may have arrived since the caller looked
+            if (topSize < top.length) {
+                top[topSize++] = c;
+                c.inTop = true;
+                if (topSize == top.length) updateThreshold(e);
+                return;
+            }
+            int weakest = 0;
+            double weakestScore = rawScore(top[0], e);
+            for (int i = 1; i < topSize; i++) {
+                double s = rawScore(top[i], e);
+                if (s < weakestScore) {
+                    weakestScore = s;
+                    weakest = i;
+                }
+            }
+            if (score > weakestScore) {
+                top[weakest].inTop = false;
+                top[weakest] = c;
+                c.inTop = true;
+            }
+            updateThreshold(e);
+        }
+    }
+
+    /**
+     * Recomputes the entry threshold (the weakest member's score); caller holds topLock and the set is full.
+     */
+    private void updateThreshold(Epoch e) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < topSize; i++) {
+            min = Math.min(min, rawScore(top[i], e));
+        }
+        threshold = min;
+        thresholdEpoch = e.id;
+    }
+
+    /**
+     * Score relative to the epoch's landmark, summing the cells of older epochs scaled down.
+     */
+    private double rawScore(Counter c, Epoch e) {
+        double total = 0;
+        for (Cell cell = c.cell; cell != null; cell = cell.previous) {
+            total += cell.sum.sum() * Math.exp(lambda * (cell.epoch.landmark - e.landmark));
+        }
+        return total;
+    }
+
+    /**
+     * The counter's cell for an epoch, starting a new cell (linked to the old one) if the epoch moved on.
+     */
+    private static Cell cellFor(Counter c, Epoch e) {
+        Cell cell = c.cell;
+        if (cell.epoch.id >= e.id) return cell;
+        synchronized (c) {
+            cell = c.cell;
+            if (cell.epoch.id < e.id) {
+                cell.previous = null; // two epochs back: nothing can still be adding to it
+                cell = new Cell(e, cell);
+                c.cell = cell;
+            }
+            return cell;
+        }
+    }
+
+    /**
+     * The epoch to weight a play at time now, moving the landmark forward when weights would grow too large.
+     */
+    private Epoch currentEpoch(double now) {
+        Epoch e = epoch;
+        if (lambda * (now - e.landmark) <= MAX_EXPONENT) return e;
+        synchronized (this) {
+            e = epoch;
+            if (lambda * (now - e.landmark) > MAX_EXPONENT) {
+                e = new Epoch(e.id + 1, now);
+                epoch = e;
+            }
+            return e;
+        }
+    }
+
+    private double seconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+}
@@ -0,0 +1,119 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Playlist's rating column, stored as fixed-size chunks behind a small spine array.
+ *
+ * Published versions hold the spine as it was when they were published. A write below the
+ * published size copies only the chunk it lands in (and the spine, once per publish), so a rating
+ * change costs O(CHUNK_SIZE + capacity / CHUNK_SIZE) instead of a copy of the whole column.
+ * Writes past the published size (appends) go in place: no reader looks beyond its own size.
+ * Chunks copied since the last publish belong to the writer and are reused until the next one.
+ *
+ * Readers go through the static get(spine, index); the column itself is only used by the
+ * writer, under the playlist's lock.
+ */
+final class RatingColumn {
+    static final int CHUNK_BITS = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 4096 ratings, 32 KB
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private double[][] chunks; // the last chunk may be shorter than CHUNK_SIZE
+    private int[] copiedIn; // per chunk: publish round in which it was created or last copied
+    private boolean spineCopied = true; // nothing published shares the spine yet
+    private int round;
+    private int publishedSize; // entries [0, publishedSize) may be read by published versions
+
+    RatingColumn(int capacity) {
+        chunks = new double[0][];
+        copiedIn = new int[0];
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * A column holding values[0..size-1], with room for capacity entries.
+     */
+    RatingColumn(double[] values, int size, int capacity) {
+        this(capacity);
+        for (int i = 0; i < size; i++) {
+            chunks[i >>> CHUNK_BITS][i & CHUNK_MASK] = values[i];
+        }
+    }
+
+    /**
+     * Value at index in a spine handed out by publish.
+     */
+    static double get(double[][] spine, int index) {
+        return spine[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    double get(int index) {
+        return get(chunks, index);
+    }
+
+    /**
+     * Stores a value, copying its chunk first if a published version can see that entry.
+     */
+    void set(int index, double value) {
+        int c = index >>> CHUNK_BITS;
+        double[] chunk = chunks[c];
+        if (index < publishedSize && copiedIn[c] != round) { // shared with readers: copy-on-write
+            chunk = chunk.clone();
+            replace(c, chunk);
+        }
+        chunk[index & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Makes room for at least capacity entries; existing chunks are kept, only the last one may be regrown.
+     */
+    void ensureCapacity(int capacity) {
+        int needed = (capacity + CHUNK_MASK) >>> CHUNK_BITS;
+        int from = Math.max(0, chunks.length - 1); // earlier chunks are already full-sized
+        if (needed > chunks.length) {
+            chunks = Arrays.copyOf(chunks, needed); // a new spine is private to the writer
+            copiedIn = Arrays.copyOf(copiedIn, needed);
+            spineCopied = true;
+        }
+        for (int c = from; c < needed; c++) {
+            int length = Math.min(CHUNK_SIZE, capacity - (c << CHUNK_BITS));
+            if (chunks[c] == null) {
+                chunks[c] = new double[length];
+                copiedIn[c] = round;
+            } else if (chunks[c].length < length) {
+                replace(c, Arrays.copyOf(chunks[c], length));
+            }
+        }
+    }
+
+    /**
+     * Copies the first size entries into a flat array.
+     */
+    double[] toArray(int size) {
+        double[] values = new double[size];
+        for (int base = 0; base < size; base += CHUNK_SIZE) {
+            System.arraycopy(chunks[base >>> CHUNK_BITS], 0, values, base, Math.min(CHUNK_SIZE, size - base));
+        }
+        return values;
+    }
+
+    /**
+     * Hands the current spine to readers of the first size entries; later writes to them copy first.
+     */
+    double[][] publish(int size) {
+        publishedSize = size;
+        round++;
+        spineCopied = false;
+        return chunks;
+    }
+
+    private void replace(int c, double[] chunk) {
+        if (!spineCopied) { // published versions keep the old spine
+            chunks = chunks.clone();
+            spineCopied = true;
+        }
+        chunks[c] = chunk;
+        copiedIn[c] = round;
+    }
+}
@@ -0,0 +1,45 @@
+package utils;
+
+/**
+ * Summary of a playlist's ratings: how many songs were counted and their min, max and mean.
+ * Min, max and mean are NaN when no song was counted.
+ */
+public class RatingStats {
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double mean;
+
+    public RatingStats(int count, double min, double max, double mean) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return "RatingStats{" +
+                "count=" + count +
+                ", min=" + min +
+                ", max=" + max +
+                ", mean=" + mean +
+                '}';
+    }
+}
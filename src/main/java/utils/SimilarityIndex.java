@@ -0,0 +1,287 @@
+package utils;
+
+import business.Song;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Approximate "songs like this one" lookup: MinHash signatures over tag sets plus locality-sensitive hashing.
+ *
+ * Each song gets a signature of NUM_HASHES minimum hash values over its (lower-cased) tags. The signature
+ * is cut into BANDS bands of ROWS values; songs sharing any band land in the same bucket, so songs with
+ * similar tag sets are very likely to meet in at least one bucket. Queries only compare against songs in
+ * the query's buckets and rank them by exact Jaccard similarity.
+ *
+ * A bucket holds at most BUCKET_CAPACITY songs. When more songs hash to it (for example many songs
+ * with the same tags), it keeps a uniform sample of them (reservoir sampling), so a query sees a fair
+ * selection rather than the oldest songs, and never compares more than BANDS * BUCKET_CAPACITY songs.
+ * Every song remembers its position in each bucket, so moving it out of a bucket is O(1).
+ */
+class SimilarityIndex {
+    private static final int BANDS = 8;
+    private static final int ROWS = 4;
+    private static final int NUM_HASHES = BANDS * ROWS;
+    static final int BUCKET_CAPACITY = 256; // so a query compares at most 2048 songs
+    private static final Song[] NO_SONGS = new Song[0];
+
+    // Per-hash-function seeds (fixed so signatures are reproducible)
+    private static final int[] SEEDS = new int[NUM_HASHES];
+
+    static {
+        int x = 0x2545F491;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            x ^= x << 13; // xorshift
+            x ^= x >>> 17;
+            x ^= x << 5;
+            SEEDS[i] = x | 1;
+        }
+    }
+
+    private final IdentityHashMap<Song, Entry> entries = new IdentityHashMap<>();
+    private final HashMap<Long, Bucket> buckets = new HashMap<>();
+    private final Random random = new Random(0x51D1A7L); // fixed seed: same insertions, same samples
+    private long nextSerial;
+
+    /**
+     * One indexed song: its signature and where it sits in each band's bucket.
+     */
+    private static final class Entry {
+        private final Song song;
+        private final long serial; // indexing order, breaks ranking ties
+        private int[] signature;
+        private final int[] positions = new int[BANDS]; // slot in the band's bucket, -1 if not in it
+
+        Entry(Song song, long serial, int[] signature) {
+            this.song = song;
+            this.serial = serial;
+            this.signature = signature;
+            Arrays.fill(positions, -1);
+        }
+    }
+
+    /**
+     * Songs sharing one band value, at most BUCKET_CAPACITY of them (unordered).
+     */
+    private static final class Bucket {
+        private Entry[] members = new Entry[2];
+        private int size;
+        private int offered; // songs hashing here, including those left out of the sample
+    }
+
+    /**
+     * Indexes a newly stored song (once, even if stored in several slots).
+     */
+    void addSong(Song s) {
+        if (entries.containsKey(s)) return;
+        Entry e = new Entry(s, nextSerial++, signatureOf(s));
+        entries.put(s, e);
+        if (isEmpty(e.signature)) return; // songs without tags are never similar to anything
+        for (int band = 0; band < BANDS; band++) {
+            enter(band, bucketKey(band, e.signature), e);
+        }
+    }
+
+    /**
+     * Folds one new tag into a song's signature; only bands whose values changed move bucket.
+     */
+    void tagAdded(Song s, String tag) {
+        Entry e = entries.get(s);
+        if (e == null) return;
+        int[] updated = e.signature.clone();
+        int h = tagHash(tag);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            updated[i] = Math.min(updated[i], permute(h, i));
+        }
+        rebucket(e, updated);
+    }
+
+    /**
+     * Recomputes a song's signature from scratch (used when setTagCount changed the used tags).
+     */
+    void tagsReset(Song s) {
+        Entry e = entries.get(s);
+        if (e == null) return;
+        rebucket(e, signatureOf(s));
+    }
+
+    /**
+     * Up to k songs most similar to the query, by Jaccard similarity of tag sets,
+     * then same genre first, then the order songs were indexed in.
+     * The query song itself is never returned.
+     */
+    Song[] similarTo(Song query, int k) {
+        if (query == null || k <= 0) return NO_SONGS;
+        Entry own = entries.get(query);
+        int[] signature = own != null ? own.signature : signatureOf(query);
+
+        // Collect distinct candidates from the query's buckets
+        IdentityHashMap<Song, Boolean> seen = new IdentityHashMap<>();
+        ArrayList<Entry> candidates = new ArrayList<>();
+        for (int band = 0; band < BANDS; band++) {
+            Bucket bucket = buckets.get(bucketKey(band, signature));
+            if (bucket == null) continue;
+            for (int i = 0; i < bucket.size; i++) {
+                Entry e = bucket.members[i];
+                if (e.song != query && seen.put(e.song, Boolean.TRUE) == null) candidates.add(e);
+            }
+        }
+        if (candidates.isEmpty()) return NO_SONGS;
+
+        // Score each candidate exactly, then rank
+        int n = candidates.size();
+        double[] scores = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = jaccard(query, candidates.get(i).song);
+            order[i] = i;
+        }
+        String genre = query.getGenre();
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(scores[b], scores[a]);
+            if (cmp != 0) return cmp;
+            boolean sameA = genre != null && genre.equalsIgnoreCase(candidates.get(a).song.getGenre());
+            boolean sameB = genre != null && genre.equalsIgnoreCase(candidates.get(b).song.getGenre());
+            if (sameA != sameB) return sameA ? -1 : 1;
+            return Long.compare(candidates.get(a).serial, candidates.get(b).serial);
+        });
+
+        Song[] result = new Song[Math.min(k, n)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = candidates.get(order[i]).song;
+        }
+        return result;
+    }
+
+    /**
+     * Exact Jaccard similarity of two songs' tag sets (case-insensitive), merging their sorted tag arrays.
+     */
+    static double jaccard(Song a, Song b) {
+        String[] tagsA = a.getTags();
+        String[] tagsB = b.getTags();
+        int countA = a.getTagCount();
+        int countB = b.getTagCount();
+        if (countA == 0 && countB == 0) return 0;
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < countA && j < countB) {
+            int cmp = tagsA[i].compareToIgnoreCase(tagsB[j]);
+            if (cmp == 0) {
+                common++;
+                i++;
+                j++;
+            } else if (cmp < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (countA + countB - common);
+    }
+
+    private void rebucket(Entry e, int[] newSignature) {
+        boolean wasIndexed = !isEmpty(e.signature);
+        boolean indexed = !isEmpty(newSignature);
+        for (int band = 0; band < BANDS; band++) {
+            long oldKey = bucketKey(band, e.signature);
+            long newKey = bucketKey(band, newSignature);
+            if (oldKey == newKey && wasIndexed == indexed) continue;
+            if (wasIndexed) leave(band, oldKey, e);
+            if (indexed) enter(band, newKey, e);
+        }
+        e.signature = newSignature;
+    }
+
+    /**
+     * Offers a song to a band's bucket. A full bucket keeps each of the songs offered so far with
+     * equal probability: the newcomer replaces a random member with probability capacity / offered.
+     */
+    private void enter(int band, long key, Entry e) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(key, bucket);
+        }
+        bucket.offered++;
+        if (bucket.size < BUCKET_CAPACITY) {
+            if (bucket.size == bucket.members.length) {
+                bucket.members = Arrays.copyOf(bucket.members, Math.min(BUCKET_CAPACITY, bucket.size * 2));
+            }
+            bucket.members[bucket.size] = e;
+            e.positions[band] = bucket.size++;
+            return;
+        }
+        int slot = random.nextInt(bucket.offered);
+        if (slot >= BUCKET_CAPACITY) return; // not sampled: the song just isn't a candidate via this band
+        bucket.members[slot].positions[band] = -1; // evicted from the sample
+        bucket.members[slot] = e;
+        e.positions[band] = slot;
+    }
+
+    /**
+     * Takes a song out of a band's bucket in O(1): the last member moves into its slot.
+     */
+    private void leave(int band, long key, Entry e) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) return;
+        bucket.offered--;
+        int slot = e.positions[band];
+        if (slot >= 0) {
+            Entry last = bucket.members[--bucket.size];
+            bucket.members[slot] = last;
+            bucket.members[bucket.size] = null;
+            last.positions[band] = slot; // no-op when e was the last member
+            e.positions[band] = -1;
+        }
+        if (bucket.offered == 0) buckets.remove(key);
+    }
+
+    private static boolean isEmpty(int[] signature) {
+        for (int v : signature) {
+            if (v != Integer.MAX_VALUE) return false;
+        }
+        return true;
+    }
+
+    private static int[] signatureOf(Song s) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE); // stays all-MAX for a song without tags
+        String[] tags = s.getTags();
+        for (int t = 0; t < s.getTagCount(); t++) {
+            if (tags[t] == null) continue;
+            int h = tagHash(tags[t]);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                signature[i] = Math.min(signature[i], permute(h, i));
+            }
+        }
+        return signature;
+    }
+
+    private static long bucketKey(int band, int[] signature) {
+        int h = band;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++) {
+            h = h * 31 + signature[r];
+        }
+        return ((long) band << 32) | (h & 0xFFFFFFFFL);
+    }
+
+    private static int tagHash(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT).hashCode();
+    }
+
+    /**
+     * The i-th hash function: multiply by an odd seed and mix (a cheap universal-style hash).
+     */
+    private static int permute(int h, int i) {
+        int x = h * SEEDS[i];
+        x ^= x >>> 15;
+        x *= 0x2C1B3C6D;
+        x ^= x >>> 12;
+        return x;
+    }
+}
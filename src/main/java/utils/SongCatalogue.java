@@ -0,0 +1,75 @@
+package utils;
+
+import business.Song;
+import business.SongListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Master song store: every distinct song (same title, artist and album) is held once and gets a dense int id.
+ * Playlists in a Workspace refer to songs by these ids instead of holding their own copies.
+ */
+public class SongCatalogue {
+    private Song[] songs = new Song[16];
+    private int size;
+    private final HashMap<SongIdentity, Integer> ids = new HashMap<>();
+    private final SongListener identityWatcher = new IdentityWatcher();
+
+    /**
+     * Returns the id of the song, adding it first if no equal song is stored yet.
+     *
+     * @param s song to store
+     * @return id of the stored (possibly pre-existing) equal song
+     */
+    public synchronized int intern(Song s) {
+        if (s == null) throw new IllegalArgumentException("song is null");
+        SongIdentity key = SongIdentity.of(s);
+        Integer existing = ids.get(key);
+        if (existing != null) return existing;
+
+        if (size == songs.length) songs = Arrays.copyOf(songs, size * 2);
+        int id = size;
+        songs[size++] = s;
+        ids.put(key, id);
+        s.addListener(identityWatcher);
+        return id;
+    }
+
+    /**
+     * @return id of the stored song equal to s, or -1 if there is none
+     */
+    public synchronized int idOf(Song s) {
+        if (s == null) return -1;
+        Integer id = ids.get(SongIdentity.of(s));
+        return id == null ? -1 : id;
+    }
+
+    public synchronized Song get(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("song id " + id + " of " + size);
+        return songs[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the identity map correct when a stored song's title, artist or album is changed.
+     */
+    private synchronized void rekey(Song s, Song.Field field, Object oldValue) {
+        SongIdentity oldKey = SongIdentity.before(s, field, oldValue);
+        if (oldKey == null) return; // not an identity field
+        Integer id = ids.get(oldKey);
+        if (id == null || songs[id] != s) return; // key belongs to another song
+        ids.remove(oldKey);
+        ids.putIfAbsent(SongIdentity.of(s), id); // a clash keeps the older song's id
+    }
+
+    private class IdentityWatcher implements SongListener {
+        @Override
+        public void songChanged(Song song, Song.Field field, Object oldValue) {
+            rekey(song, field, oldValue);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package utils;
+
+import business.Song;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+
+/**
+ * Case-insensitive hash index from one field value (artist, album or genre) to the songs carrying it.
+ * A song stored twice in the playlist is returned twice here too. Lookups come back in no particular
+ * order: repeats of one song are adjacent, and a song whose value changes goes to the end of its new bucket.
+ *
+ * Each bucket is a doubly linked list, and every song knows its node, so moving a song to another
+ * value is O(1) however many songs share the old one.
+ */
+class SongFieldIndex {
+    private static final Song[] EMPTY = new Song[0];
+
+    private final HashMap<String, Bucket> buckets = new HashMap<>();
+    // Songs whose value is null; never returned by lookup, only kept so move() stays exact
+    private final Bucket nullBucket = new Bucket(null);
+    private final IdentityHashMap<Song, Node> nodes = new IdentityHashMap<>(); // identity, not equals
+
+    /**
+     * One song in a bucket, with how many times it is stored.
+     */
+    private static final class Node {
+        private final Song song;
+        private int count;
+        private Bucket bucket;
+        private Node prev;
+        private Node next;
+
+        Node(Song song) {
+            this.song = song;
+        }
+    }
+
+    /**
+     * Songs sharing one value, in the order they joined it.
+     */
+    private static final class Bucket {
+        private final String key; // null for the null bucket
+        private Node head;
+        private Node tail;
+        private int size; // occurrences, counting repeats
+
+        Bucket(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Indexes one occurrence of a song under value.
+     * A song already indexed just gains an occurrence where it is.
+     */
+    void add(String value, Song s) {
+        Node node = nodes.get(s);
+        if (node != null) {
+            node.count++;
+            node.bucket.size++;
+            return;
+        }
+        node = new Node(s);
+        node.count = 1;
+        nodes.put(s, node);
+        append(bucketFor(value), node);
+    }
+
+    /**
+     * Moves every occurrence of a song to newValue in O(1).
+     */
+    void move(String newValue, Song s) {
+        Node node = nodes.get(s);
+        if (node == null) return; // never indexed
+        Bucket target = bucketFor(newValue);
+        if (target == node.bucket) return;
+        unlink(node);
+        append(target, node);
+    }
+
+    /**
+     * Songs whose value equals the given one ignoring case, in O(k) for k matches and in no particular order.
+     *
+     * @param value value to look up
+     * @return matching songs (possibly empty)
+     */
+    Song[] lookup(String value) {
+        if (value == null) return EMPTY;
+        Bucket bucket = buckets.get(key(value));
+        if (bucket == null) return EMPTY;
+        Song[] result = new Song[bucket.size];
+        int n = 0;
+        for (Node node = bucket.head; node != null; node = node.next) {
+            for (int i = 0; i < node.count; i++) {
+                result[n++] = node.song;
+            }
+        }
+        return result;
+    }
+
+    private Bucket bucketFor(String value) {
+        if (value == null) return nullBucket;
+        String key = key(value);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(key);
+            buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    private static void append(Bucket bucket, Node node) {
+        node.bucket = bucket;
+        node.prev = bucket.tail;
+        node.next = null;
+        if (bucket.tail == null) bucket.head = node;
+        else bucket.tail.next = node;
+        bucket.tail = node;
+        bucket.size += node.count;
+    }
+
+    private void unlink(Node node) {
+        Bucket bucket = node.bucket;
+        if (node.prev == null) bucket.head = node.next;
+        else node.prev.next = node.next;
+        if (node.next == null) bucket.tail = node.prev;
+        else node.next.prev = node.prev;
+        bucket.size -= node.count;
+        if (bucket.head == null && bucket.key != null) buckets.remove(bucket.key);
+        node.bucket = null;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
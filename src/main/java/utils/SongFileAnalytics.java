@@ -0,0 +1,510 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Report-style aggregates over song files, computed in one streaming pass without building Songs or a Playlist.
+ *
+ * Files are cut into line-aligned ranges that are scanned in parallel through a fixed-size buffer;
+ * lines are tokenized in place with SongLineScanner and only primitive counters are updated.
+ * Each task scans a run of consecutive ranges into one partial result, and the fork/join tree adds
+ * every right half into its left half as soon as both are done. The number of partials alive at once
+ * depends on the pool's parallelism, not on the input, so memory depends on the number of distinct
+ * tags and genres, not on file sizes. Halves are merged in file order, so the report is the same as
+ * a sequential scan's.
+ *
+ * Lines count as songs exactly when readSongFile would accept them, and tags are counted the way
+ * a Song stores them: trimmed, blanks skipped, repeats within one song (ignoring case) counted once.
+ */
+public final class SongFileAnalytics {
+    public static final int DEFAULT_BUCKETS = 5;
+    public static final double DEFAULT_MIN_RATING = 0;
+    public static final double DEFAULT_MAX_RATING = 5;
+    private static final long RANGE_SIZE = 32L * 1024 * 1024; // bytes per parallel task
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int TASKS_PER_WORKER = 4; // leaf tasks per pool thread, for load balancing
+
+    private SongFileAnalytics() {
+    }
+
+    /**
+     * Analyzes files with a histogram of DEFAULT_BUCKETS buckets over [DEFAULT_MIN_RATING, DEFAULT_MAX_RATING].
+     *
+     * @param files song files in the Title%%Artist%%... format
+     * @return aggregates over all files
+     * @throws IOException if a file cannot be read
+     */
+    public static Report analyze(List<Path> files) throws IOException {
+        return analyze(files, DEFAULT_BUCKETS, DEFAULT_MIN_RATING, DEFAULT_MAX_RATING);
+    }
+
+    /**
+     * Analyzes files in one parallel pass.
+     * Histogram buckets follow Playlist.ratingHistogram: equal widths over [min, max],
+     * ratings outside the range counted in the first or last bucket.
+     *
+     * @param files song files in the Title%%Artist%%... format
+     * @param buckets number of rating histogram buckets
+     * @param min lower bound of the first bucket
+     * @param max upper bound of the last bucket
+     * @return aggregates over all files
+     * @throws IOException if a file cannot be read
+     */
+    public static Report analyze(List<Path> files, int buckets, double min, double max) throws IOException {
+        return analyze(files, buckets, min, max, RANGE_SIZE);
+    }
+
+    /**
+     * analyze() with a chosen range size; tests use tiny ranges to put range edges inside lines.
+     */
+    static Report analyze(List<Path> files, int buckets, double min, double max, long rangeSize) throws IOException {
+        if (rangeSize < 1) throw new IllegalArgumentException("rangeSize must be positive");
+        if (buckets <= 0 || !(max > min)) {
+            throw new IllegalArgumentException("need buckets > 0 and max > min");
+        }
+        ArrayList<Range> ranges = new ArrayList<>();
+        for (Path file : files) {
+            long size;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                size = channel.size();
+            }
+            long start = 0;
+            do {
+                long end = Math.min(size, start + rangeSize);
+                ranges.add(new Range(file, start, end));
+                start = end;
+            } while (start < size);
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int leaves = Math.max(1, pool.getParallelism() * TASKS_PER_WORKER);
+        int rangesPerLeaf = Math.max(1, (ranges.size() + leaves - 1) / leaves);
+        IOException[] failure = new IOException[1];
+        Partial total = pool.invoke(new ScanTask(ranges, 0, ranges.size(), rangesPerLeaf, buckets, min, max, failure));
+        if (failure[0] != null) throw failure[0];
+        return new Report(files.size(), total);
+    }
+
+    /**
+     * Aggregates produced by analyze().
+     */
+    public static final class Report {
+        private final int files;
+        private final Partial totals;
+
+        private Report(int files, Partial totals) {
+            this.files = files;
+            this.totals = totals;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getLines() {
+            return totals.lines;
+        }
+
+        public long getSongs() {
+            return totals.songs;
+        }
+
+        /**
+         * @return lines that are not valid songs
+         */
+        public long getMalformed() {
+            return totals.lines - totals.songs;
+        }
+
+        /**
+         * @return min, max and mean rating over all songs (NaN ratings ignored)
+         */
+        public RatingStats getRatingStats() {
+            Partial t = totals;
+            if (t.rated == 0) return new RatingStats(0, Double.NaN, Double.NaN, Double.NaN);
+            return new RatingStats((int) Math.min(t.rated, Integer.MAX_VALUE), t.minRating, t.maxRating, t.ratingSum / t.rated);
+        }
+
+        /**
+         * @return song count per rating bucket
+         */
+        public long[] getRatingHistogram() {
+            return totals.histogram.clone();
+        }
+
+        /**
+         * @return songs per tag, ignoring case, spelled as first seen, in order of first appearance
+         */
+        public Map<String, Long> getTagCounts() {
+            return totals.tags.toMap();
+        }
+
+        /**
+         * @return the k tags on the most songs, most frequent first (ties in order of first appearance)
+         */
+        public String[] topTags(int k) {
+            return totals.tags.top(k);
+        }
+
+        /**
+         * @return songs per genre, ignoring case, spelled as first seen, in order of first appearance
+         */
+        public Map<String, Long> getSongsPerGenre() {
+            return totals.genres.toMap();
+        }
+
+        @Override
+        public String toString() {
+            return "files=" + files + ", lines=" + getLines() + ", songs=" + getSongs() + ", malformed=" + getMalformed()
+                    + ", tags=" + totals.tags.size + ", genres=" + totals.genres.size;
+        }
+    }
+
+    /**
+     * Part of a file: the lines that start in [start, end).
+     */
+    private static final class Range {
+        private final Path file;
+        private final long start;
+        private final long end;
+
+        Range(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Splits the ranges in halves down to runs of rangesPerLeaf, scans each run into one Partial
+     * and adds the right half's result into the left's, so ties and first spellings keep file order.
+     */
+    private static final class ScanTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Range> ranges;
+        private final int from;
+        private final int to;
+        private final int rangesPerLeaf;
+        private final int buckets;
+        private final double min;
+        private final double max;
+        private final IOException[] failure;
+
+        ScanTask(List<Range> ranges, int from, int to, int rangesPerLeaf, int buckets, double min, double max,
+                 IOException[] failure) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.rangesPerLeaf = rangesPerLeaf;
+            this.buckets = buckets;
+            this.min = min;
+            this.max = max;
+            this.failure = failure;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > rangesPerLeaf) {
+                int mid = (from + to) >>> 1;
+                ScanTask left = new ScanTask(ranges, from, mid, rangesPerLeaf, buckets, min, max, failure);
+                ScanTask right = new ScanTask(ranges, mid, to, rangesPerLeaf, buckets, min, max, failure);
+                invokeAll(left, right);
+                Partial merged = left.join();
+                merged.add(right.join()); // the right half's partial can be collected now
+                return merged;
+            }
+            Partial partial = new Partial(buckets, min, max);
+            try {
+                for (int i = from; i < to; i++) {
+                    scan(ranges.get(i), partial);
+                }
+            } catch (IOException e) {
+                synchronized (failure) {
+                    if (failure[0] == null) failure[0] = e;
+                }
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Reads the lines starting in a range through a reusable buffer. A range that does not start
+     * at the beginning of the file skips the line in progress, which belongs to the previous range.
+     */
+    private static void scan(Range range, Partial partial) throws IOException {
+        try (FileChannel channel = FileChannel.open(range.file, StandardOpenOption.READ)) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int length = 0; // bytes in buf
+            int lineFrom = 0; // start of the current line in buf
+            int scanned = 0; // bytes of buf already searched for '\n'
+            long bufStart = range.start > 0 ? range.start - 1 : 0; // file position of buf[0]
+            boolean skipping = range.start > 0; // still inside the previous range's last line
+            long position = bufStart;
+
+            while (true) {
+                if (length == buf.length) { // make room: drop finished lines, or grow for a very long line
+                    if (lineFrom > 0) {
+                        System.arraycopy(buf, lineFrom, buf, 0, length - lineFrom);
+                        length -= lineFrom;
+                        scanned -= lineFrom;
+                        bufStart += lineFrom;
+                        lineFrom = 0;
+                    } else {
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                    }
+                }
+                int n = channel.read(ByteBuffer.wrap(buf, length, buf.length - length), position);
+                if (n < 0) break;
+                position += n;
+                length += n;
+
+                for (int i = scanned; i < length; i++) {
+                    if (buf[i] != '\n') continue;
+                    if (skipping) {
+                        skipping = false;
+                    } else {
+                        if (bufStart + lineFrom >= range.end) return; // next range's line
+                        partial.addLine(buf, lineFrom, i);
+                    }
+                    lineFrom = i + 1;
+                }
+                scanned = length;
+                if (!skipping && bufStart + lineFrom >= range.end) return; // every line of this range is done
+            }
+            if (!skipping && lineFrom < length && bufStart + lineFrom < range.end) {
+                partial.addLine(buf, lineFrom, length); // last line without a trailing newline
+            }
+        }
+    }
+
+    /**
+     * Counters for a run of consecutive ranges; neighbouring runs are added together in order.
+     */
+    private static final class Partial {
+        private long lines;
+        private long songs;
+        private long rated; // songs with a non-NaN rating
+        private double ratingSum;
+        private double minRating = Double.POSITIVE_INFINITY;
+        private double maxRating = Double.NEGATIVE_INFINITY;
+        private final long[] histogram;
+        private final double histogramMin;
+        private final double scale;
+        private final TextCounter tags = new TextCounter();
+        private final TextCounter genres = new TextCounter();
+        private final int[] bounds = new int[2 * SongLineScanner.FIELDS];
+        private int[] lineTags = new int[16]; // tag ids already counted for the current song
+
+        Partial(int buckets, double min, double max) {
+            histogram = new long[buckets];
+            histogramMin = min;
+            scale = buckets / (max - min);
+        }
+
+        void addLine(byte[] buf, int from, int to) {
+            if (to > from && buf[to - 1] == '\r') to--; // Windows line ending
+            lines++;
+            if (SongLineScanner.splitFields(buf, from, to, bounds) != SongLineScanner.FIELDS) return;
+            songs++;
+
+            double r = SongLineScanner.parseRating(buf, bounds[2 * SongLineScanner.RATING], bounds[2 * SongLineScanner.RATING + 1]);
+            if (r == r) {
+                rated++;
+                ratingSum += r;
+                if (r < minRating) minRating = r;
+                if (r > maxRating) maxRating = r;
+                int b = (int) ((r - histogramMin) * scale);
+                if (b < 0) b = 0;
+                if (b >= histogram.length) b = histogram.length - 1;
+                histogram[b]++;
+            }
+
+            genres.increment(genres.find(buf, bounds[2 * SongLineScanner.GENRE], bounds[2 * SongLineScanner.GENRE + 1]));
+
+            int counted = 0;
+            int tagEnd = bounds[2 * SongLineScanner.TAGS + 1];
+            int t = bounds[2 * SongLineScanner.TAGS];
+            while (t <= tagEnd) {
+                int end = SongLineScanner.nextTagSeparator(buf, t, tagEnd);
+                int s = t;
+                int e = end;
+                while (s < e && (buf[s] & 0xFF) <= ' ') s++; // trim like String.trim
+                while (e > s && (buf[e - 1] & 0xFF) <= ' ') e--;
+                if (s < e) {
+                    int id = tags.find(buf, s, e);
+                    if (!contains(lineTags, counted, id)) { // a song holds each tag once
+                        if (counted == lineTags.length) lineTags = Arrays.copyOf(lineTags, counted * 2);
+                        lineTags[counted++] = id;
+                        tags.increment(id);
+                    }
+                }
+                t = end + 2;
+            }
+        }
+
+        void add(Partial other) {
+            lines += other.lines;
+            songs += other.songs;
+            rated += other.rated;
+            ratingSum += other.ratingSum;
+            minRating = Math.min(minRating, other.minRating);
+            maxRating = Math.max(maxRating, other.maxRating);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            tags.add(other.tags);
+            genres.add(other.genres);
+        }
+
+        private static boolean contains(int[] ids, int used, int id) {
+            for (int i = 0; i < used; i++) {
+                if (ids[i] == id) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Case-insensitive counts of short texts read straight from UTF-8 bytes.
+     * Entries get dense ids in order of first appearance; Strings are only created for new entries.
+     * Keys are the lower-cased text (Locale.ROOT); ASCII is folded and compared byte by byte.
+     */
+    private static final class TextCounter {
+        private int[] table = new int[64]; // id + 1, or 0 for a free slot (linear probing)
+        private String[] keys = new String[32];
+        private String[] spellings = new String[32];
+        private int[] hashes = new int[32];
+        private long[] counts = new long[32];
+        private int size;
+
+        /**
+         * Id of the text in buf[from..to), adding it with a zero count if it is new.
+         */
+        int find(byte[] buf, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                int c = buf[i];
+                if (c < 0) { // non-ASCII: let String handle decoding and case rules
+                    String text = new String(buf, from, to - from, StandardCharsets.UTF_8);
+                    String key = text.toLowerCase(Locale.ROOT);
+                    return find(key.hashCode(), key, text);
+                }
+                if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+                h = 31 * h + c; // same as the folded key's String.hashCode
+            }
+            int mask = table.length - 1;
+            for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+                int id = table[slot] - 1;
+                if (id < 0) {
+                    char[] folded = new char[to - from];
+                    for (int i = 0; i < folded.length; i++) {
+                        int c = buf[from + i];
+                        folded[i] = (char) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+                    }
+                    return insert(slot, h, new String(folded), new String(buf, from, to - from, StandardCharsets.US_ASCII));
+                }
+                if (hashes[id] == h && matchesAscii(keys[id], buf, from, to)) return id;
+            }
+        }
+
+        /**
+         * Id of a key given as a String, adding it with a zero count if it is new.
+         */
+        int find(int h, String key, String spelling) {
+            int mask = table.length - 1;
+            for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+                int id = table[slot] - 1;
+                if (id < 0) return insert(slot, h, key, spelling);
+                if (hashes[id] == h && keys[id].equals(key)) return id;
+            }
+        }
+
+        void increment(int id) {
+            counts[id]++;
+        }
+
+        /**
+         * Adds another counter's entries; texts new to this one keep the other's spelling.
+         */
+        void add(TextCounter other) {
+            for (int id = 0; id < other.size; id++) {
+                counts[find(other.hashes[id], other.keys[id], other.spellings[id])] += other.counts[id];
+            }
+        }
+
+        Map<String, Long> toMap() {
+            LinkedHashMap<String, Long> map = new LinkedHashMap<>();
+            for (int id = 0; id < size; id++) {
+                map.put(spellings[id], counts[id]);
+            }
+            return map;
+        }
+
+        String[] top(int k) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a])); // stable: ties keep first appearance
+            String[] result = new String[Math.max(0, Math.min(k, size))];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = spellings[order[i]];
+            }
+            return result;
+        }
+
+        private int insert(int slot, int h, String key, String spelling) {
+            if (size == keys.length) {
+                int grown = size * 2;
+                keys = Arrays.copyOf(keys, grown);
+                spellings = Arrays.copyOf(spellings, grown);
+                hashes = Arrays.copyOf(hashes, grown);
+                counts = Arrays.copyOf(counts, grown);
+            }
+            int id = size++;
+            keys[id] = key;
+            spellings[id] = spelling;
+            hashes[id] = h;
+            table[slot] = id + 1;
+            if (size * 2 > table.length) rehash(); // keep the table at most half full
+            return id;
+        }
+
+        private void rehash() {
+            int[] grown = new int[table.length * 2];
+            int mask = grown.length - 1;
+            for (int id = 0; id < size; id++) {
+                int slot = hashes[id] & mask;
+                while (grown[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = id + 1;
+            }
+            table = grown;
+        }
+
+        private static boolean matchesAscii(String key, byte[] buf, int from, int to) {
+            if (key.length() != to - from) return false;
+            for (int i = 0; i < key.length(); i++) {
+                int c = buf[from + i];
+                if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+                if (key.charAt(i) != c) return false;
+            }
+            return true;
+        }
+    }
+}
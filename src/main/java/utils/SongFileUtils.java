@@ -2,8 +2,13 @@ package utils;
 
 import business.Song;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Scanner;
@@ -41,14 +46,62 @@ public class SongFileUtils {
         return temp.toArray(text);
     }
     
+    /**
+     * Reads a song file without echoing it, for scripts and other non-interactive callers.
+     * Malformed lines are dropped, as in readSongFile, but a missing file is reported
+     * to the caller instead of ending the program.
+     *
+     * @param filename song file in the Title%%Artist%%... format
+     * @return songs in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static Song [] loadSongFile(String filename) throws IOException{
+        ArrayList<Song> temp = new ArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)){
+            String line;
+            while((line = reader.readLine()) != null){
+                Song r = parseSongLine(line);
+                if(r != null){
+                    temp.add(r);
+                }
+            }
+        }
+        return temp.toArray(new Song[temp.size()]);
+    }
+
     private static Song parseSong(String s){
         System.out.println(s);
         // Format: Title%%Artist%%Album%%Rating%%Genre%%tag1~~tag2~~tag3 etc
         // %% separates components of a song
         // ~~ separates tags
-        Song song = null;
         String [] components = s.split("%%");
         System.out.println(components[0] + " " + components.length);
+        return parseComponents(components);
+    }
+
+    /**
+     * Parses a single line without echoing it to the console.
+     * Bulk loaders use this and report progress counters instead.
+     *
+     * @param s line in Title%%Artist%%Album%%Rating%%Genre%%tags format
+     * @return the parsed song, or null if the line is malformed
+     */
+    static Song parseSongLine(String s){
+        if(s == null){
+            return null;
+        }
+        return parseComponents(s.split("%%"));
+    }
+
+    /**
+     * Like parseSongLine, but keeps a trailing empty tag section so songs without tags survive a round trip.
+     */
+    static Song parseWrittenSongLine(String s){
+        return parseComponents(s.split("%%", -1));
+    }
+
+    private static Song parseComponents(String [] components){
+        Song song = null;
         if(components.length == 6){
             String title = components[0];
             String artist = components[1];
@@ -68,32 +121,97 @@ public class SongFileUtils {
         return song;
     }
     
-    private static String formatSongForFile(Song s){
+    static String formatSongForFile(Song s){
         if(s == null){
             return null;
         }
         // Format: Title%%Artist%%Album%%Rating%%Genre%%tag1~~tag2~~tag3 etc
         // %% separates components of a song
         // ~~ separates tags
-        // Build start of String
-        String output = s.getTitle()+"%%" + s.getArtist()+"%%" + s.getAlbum() + "%%" + s.getRating()+"%%"+s.getGenre()+
-                "%%";
+        StringBuilder output = new StringBuilder(s.formattedLengthEstimate());
+        output.append(s.getTitle()).append("%%").append(s.getArtist()).append("%%").append(s.getAlbum())
+                .append("%%").append(s.getRating()).append("%%").append(s.getGenre()).append("%%");
         
-        // Handle tags
+        // Handle tags - only the used part of the tags array
         String [] tags = s.getTags();
-        String tagsList;
-        if(tags.length > 0){
-            tagsList = tags[0];
-            for(String tag: tags){
-                tagsList = tagsList + "~~" + tag;
+        for(int i = 0; i < s.getTagCount(); i++){
+            if(i > 0){
+                output.append("~~");
             }
-        }else{
-            tagsList = "";
+            output.append(tags[i]);
         }
         
-        output = output + tagsList;
-        
-        return output;
+        return output.toString();
+    }
+
+    /**
+     * Writes songs in the block-compressed format (see BlockSongFile).
+     *
+     * @param filename file to create or overwrite
+     * @param songs songs to write (null entries are skipped)
+     * @param songsPerBlock songs per independently compressed block
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCompressedSongFile(String filename, Song [] songs, int songsPerBlock) throws IOException{
+        try(BlockSongFile.Writer writer = BlockSongFile.create(Paths.get(filename), songsPerBlock)){
+            for(Song s: songs){
+                if(s != null){
+                    writer.write(s);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a text song file into the block-compressed format, one line at a time.
+     * Malformed lines are dropped, just as readSongFile drops them. Each song is stored as it
+     * was parsed (re-formatted, not the raw line), so it reads back the same way.
+     *
+     * @param textFile existing Title%%Artist%%... file
+     * @param compressedFile file to create or overwrite
+     * @param songsPerBlock songs per independently compressed block
+     * @return number of songs written
+     * @throws IOException if either file fails
+     */
+    public static long compressSongFile(String textFile, String compressedFile, int songsPerBlock) throws IOException{
+        try(BufferedReader reader = Files.newBufferedReader(Paths.get(textFile), StandardCharsets.UTF_8);
+            BlockSongFile.Writer writer = BlockSongFile.create(Paths.get(compressedFile), songsPerBlock)){
+            String line;
+            while((line = reader.readLine()) != null){
+                Song s = parseSongLine(line);
+                if(s != null){
+                    writer.write(s);
+                }
+            }
+            return writer.songCount();
+        }
+    }
+
+    /**
+     * Reads every song from a block-compressed file, decompressing blocks in parallel.
+     *
+     * @param filename block-compressed song file
+     * @return songs in file order
+     * @throws IOException if the file is missing or corrupt
+     */
+    public static Song [] readCompressedSongFile(String filename) throws IOException{
+        try(BlockSongFile file = BlockSongFile.open(Paths.get(filename))){
+            return file.readAll(true);
+        }
+    }
+
+    /**
+     * Reads the song at a position of a block-compressed file, decompressing only its block.
+     *
+     * @param filename block-compressed song file
+     * @param index zero-based song position
+     * @return the song at that position
+     * @throws IOException if the file is missing or corrupt
+     */
+    public static Song readCompressedSong(String filename, long index) throws IOException{
+        try(BlockSongFile file = BlockSongFile.open(Paths.get(filename))){
+            return file.readSong(index);
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,66 @@
+package utils;
+
+import business.Song;
+
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the fields Song.equals compares (title, artist, album).
+ * Songs are mutable, so maps keyed by identity hold one of these instead of the Song itself
+ * and rekey it when a song listener reports a change (see before()).
+ */
+final class SongIdentity {
+    private final String title;
+    private final String artist;
+    private final String album;
+
+    SongIdentity(String title, String artist, String album) {
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+    }
+
+    static SongIdentity of(Song s) {
+        return new SongIdentity(s.getTitle(), s.getArtist(), s.getAlbum());
+    }
+
+    /**
+     * Identity a song had before a change reported to a SongListener.
+     *
+     * @return the previous identity, or null if the changed field is not part of it
+     */
+    static SongIdentity before(Song s, Song.Field field, Object oldValue) {
+        switch (field) {
+            case TITLE:
+                return new SongIdentity((String) oldValue, s.getArtist(), s.getAlbum());
+            case ARTIST:
+                return new SongIdentity(s.getTitle(), (String) oldValue, s.getAlbum());
+            case ALBUM:
+                return new SongIdentity(s.getTitle(), s.getArtist(), (String) oldValue);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return true if the song currently has this identity
+     */
+    boolean matches(Song s) {
+        return Objects.equals(title, s.getTitle()) && Objects.equals(artist, s.getArtist())
+                && Objects.equals(album, s.getAlbum());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SongIdentity)) return false;
+        SongIdentity other = (SongIdentity) o;
+        return Objects.equals(title, other.title) && Objects.equals(artist, other.artist)
+                && Objects.equals(album, other.album);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(title, artist, album);
+    }
+}
@@ -0,0 +1,329 @@
+package utils;
+
+import business.Song;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Staged loader that merges a song file into a playlist without holding the whole file in memory.
+ *
+ * Stages: reader -> parser workers -> deduplicate/index -> batch commit into the Playlist.
+ * Stages are connected by bounded queues, so a slow stage blocks the one before it (backpressure).
+ * The reader also needs a permit for every chunk it starts, returned once the chunk is committed,
+ * so chunks parsed ahead of a slow one can't pile up either: at most 2 * queueCapacity + parserThreads
+ * chunks of batchSize lines are in memory at any time.
+ * Songs are committed in file order; a song equal to one already in the playlist (or earlier in the file) is skipped.
+ */
+public class SongIngestPipeline {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    private final Playlist target;
+    private final int parserThreads;
+    private final int queueCapacity;
+    private final int batchSize;
+    private ProgressListener progressListener;
+    private Function<String, Song> lineParser = SongFileUtils::parseSongLine; // replaced by tests to stall or fail
+
+    /**
+     * Callback invoked on the committing thread after every batch commit.
+     */
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Live counters for one pipeline run.
+     */
+    public static final class Progress {
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong songsParsed = new AtomicLong();
+        private final AtomicLong malformed = new AtomicLong();
+        private long duplicates;
+        private long committed;
+        private long batches;
+
+        public long getLinesRead() {
+            return linesRead.get();
+        }
+
+        public long getSongsParsed() {
+            return songsParsed.get();
+        }
+
+        public long getMalformed() {
+            return malformed.get();
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getCommitted() {
+            return committed;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        @Override
+        public String toString() {
+            return "read " + getLinesRead() + " lines, added " + committed + " songs, skipped "
+                    + duplicates + " duplicates and " + getMalformed() + " malformed lines";
+        }
+    }
+
+    /**
+     * A block of consecutive lines; parsed in one go by a worker.
+     */
+    private static final class Chunk {
+        private final long seq;
+        private final String[] lines;
+        private int count;
+        private Song[] songs;
+
+        private Chunk(long seq, int capacity) {
+            this.seq = seq;
+            this.lines = new String[capacity];
+        }
+    }
+
+    // Marks the end of the stream on both queues
+    private static final Chunk END = new Chunk(-1, 0);
+
+    /**
+     * Creates a pipeline with default sizing (one parser per spare core).
+     *
+     * @param target playlist to merge into
+     */
+    public SongIngestPipeline(Playlist target) {
+        this(target, Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param target playlist to merge into
+     * @param parserThreads number of parser workers
+     * @param queueCapacity max chunks buffered between two stages
+     * @param batchSize lines per chunk and songs per commit
+     */
+    public SongIngestPipeline(Playlist target, int parserThreads, int queueCapacity, int batchSize) {
+        if (target == null) throw new IllegalArgumentException("target playlist is null");
+        if (parserThreads < 1 || queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("parserThreads, queueCapacity and batchSize must be positive");
+        }
+        this.target = target;
+        this.parserThreads = parserThreads;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Replaces the line parser used by the parser stage (tests use it to stall or fail a parser).
+     */
+    void setLineParser(Function<String, Song> lineParser) {
+        this.lineParser = lineParser;
+    }
+
+    /**
+     * Streams the file through the pipeline and commits new songs into the target playlist.
+     * The calling thread runs the deduplicate and commit stages, so the playlist is only touched from it.
+     * A read or parse failure stops the run before its next commit; batches committed before the
+     * failure stay in the playlist, and the exception says how many songs they held.
+     *
+     * @param filename song file to merge
+     * @return final counters
+     * @throws IOException if the file cannot be read or a parser fails
+     */
+    public Progress run(String filename) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8);
+        Progress progress = new Progress();
+        BlockingQueue<Chunk> rawQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Chunk> parsedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        IOException[] failure = new IOException[1];
+        // One permit per chunk between the reader and the committer: both queues full plus one per parser
+        Semaphore inFlight = new Semaphore(2 * queueCapacity + parserThreads);
+
+        ExecutorService workers = Executors.newFixedThreadPool(parserThreads + 1, r -> {
+            Thread t = new Thread(r, "song-ingest");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            workers.execute(() -> readChunks(reader, rawQueue, inFlight, progress, failure));
+            for (int i = 0; i < parserThreads; i++) {
+                workers.execute(() -> parseChunks(rawQueue, parsedQueue, progress, failure));
+            }
+            commitInOrder(parsedQueue, inFlight, progress, failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("merge interrupted");
+        } finally {
+            workers.shutdownNow();
+            reader.close();
+        }
+
+        IOException failed = failureOf(failure);
+        if (failed != null) {
+            if (progress.committed == 0) throw failed;
+            throw new IOException(failed.getMessage() + " (" + progress.committed
+                    + " songs were added before the failure)", failed);
+        }
+        return progress;
+    }
+
+    /**
+     * Reader stage: cuts the file into chunks of batchSize lines.
+     * Chunks take permits in file order, so the chunk the committer waits for always has one.
+     */
+    private void readChunks(BufferedReader reader, BlockingQueue<Chunk> out, Semaphore inFlight, Progress progress,
+                            IOException[] failure) {
+        long seq = 0;
+        try {
+            inFlight.acquire();
+            Chunk chunk = new Chunk(seq++, batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.lines[chunk.count++] = line;
+                progress.linesRead.incrementAndGet();
+                if (chunk.count == batchSize) {
+                    out.put(chunk);
+                    inFlight.acquire(); // waits while the committer is behind
+                    chunk = new Chunk(seq++, batchSize);
+                }
+            }
+            if (chunk.count > 0) out.put(chunk);
+        } catch (IOException e) {
+            recordFailure(failure, e);
+        } catch (InterruptedException e) {
+            return; // pipeline is shutting down
+        }
+
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                out.put(END); // one end marker per parser
+            }
+        } catch (InterruptedException e) {
+            // pipeline is shutting down
+        }
+    }
+
+    /**
+     * Parser stage: turns each line of a chunk into a Song (null when malformed).
+     */
+    private void parseChunks(BlockingQueue<Chunk> in, BlockingQueue<Chunk> out, Progress progress, IOException[] failure) {
+        try {
+            while (true) {
+                Chunk chunk = in.take();
+                if (chunk == END) {
+                    out.put(END);
+                    return;
+                }
+                chunk.songs = new Song[chunk.count];
+                try {
+                    for (int i = 0; i < chunk.count; i++) {
+                        Song s = lineParser.apply(chunk.lines[i]);
+                        chunk.songs[i] = s;
+                        if (s == null) progress.malformed.incrementAndGet();
+                        else progress.songsParsed.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    // keep draining so upstream never blocks, but fail the run
+                    recordFailure(failure, new IOException("Failed to parse songs", e));
+                }
+                out.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            // pipeline is shutting down
+        }
+    }
+
+    /**
+     * Commit stage: restores file order and commits in batches; the playlist drops duplicates as they arrive.
+     * Returns without committing anything more as soon as another stage has failed.
+     */
+    private void commitInOrder(BlockingQueue<Chunk> in, Semaphore inFlight, Progress progress, IOException[] failure)
+            throws InterruptedException {
+        HashMap<Long, Chunk> pending = new HashMap<>(); // chunks that arrived ahead of their turn (bounded by inFlight)
+        long nextSeq = 0;
+        int finishedParsers = 0;
+        Song[] batch = new Song[batchSize];
+        int batchCount = 0;
+
+        while (finishedParsers < parserThreads) {
+            Chunk chunk = in.take();
+            if (failureOf(failure) != null) return; // abort: this chunk or an earlier one is incomplete
+            if (chunk == END) {
+                finishedParsers++;
+                continue;
+            }
+            pending.put(chunk.seq, chunk);
+
+            // Drain every chunk that is now in order
+            Chunk ready;
+            while ((ready = pending.remove(nextSeq)) != null) {
+                nextSeq++;
+                inFlight.release(); // its songs are copied out below, the reader may start another chunk
+                for (int i = 0; i < ready.count; i++) {
+                    Song s = ready.songs == null ? null : ready.songs[i];
+                    if (s == null) continue;
+                    batch[batchCount++] = s; // duplicates are dropped by the playlist on commit
+                    if (batchCount == batchSize) {
+                        if (failureOf(failure) != null) return;
+                        commit(batch, batchCount, progress);
+                        batch = new Song[batchSize];
+                        batchCount = 0;
+                    }
+                }
+            }
+        }
+
+        if (batchCount > 0 && failureOf(failure) == null) {
+            Song[] last = new Song[batchCount];
+            for (int i = 0; i < batchCount; i++) {
+                last[i] = batch[i];
+            }
+            commit(last, batchCount, progress);
+        }
+    }
+
+    private void commit(Song[] batch, int count, Progress progress) {
+        int added = target.addNewSongs(batch); // skips songs already present, including earlier batches
+        progress.committed += added;
+        progress.duplicates += count - added;
+        progress.batches++;
+        if (progressListener != null) {
+            progressListener.onProgress(progress);
+        }
+    }
+
+    private static void recordFailure(IOException[] failure, IOException e) {
+        synchronized (failure) {
+            if (failure[0] == null) failure[0] = e;
+        }
+    }
+
+    private static IOException failureOf(IOException[] failure) {
+        synchronized (failure) {
+            return failure[0];
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Byte-level tokenizer for Title%%Artist%%Album%%Rating%%Genre%%tag1~~tag2 lines.
+ *
+ * Works on UTF-8 bytes in place so bulk scans don't have to build Strings or Songs.
+ * Field splitting mirrors String.split("%%") as used by SongFileUtils: separators are matched
+ * left to right without overlap and trailing empty fields are dropped, so a line is a song
+ * exactly when it has FIELDS fields.
+ */
+final class SongLineScanner {
+    static final int FIELDS = 6;
+    static final int TITLE = 0;
+    static final int ARTIST = 1;
+    static final int ALBUM = 2;
+    static final int RATING = 3;
+    static final int GENRE = 4;
+    static final int TAGS = 5;
+
+    private SongLineScanner() {
+    }
+
+    /**
+     * Splits buf[from..to) on "%%". Stores start/end offsets of the first FIELDS fields in bounds
+     * (bounds[2*i] inclusive, bounds[2*i+1] exclusive).
+     *
+     * @return number of fields after dropping trailing empty ones (FIELDS + 1 means "more than FIELDS")
+     */
+    static int splitFields(byte[] buf, int from, int to, int[] bounds) {
+        int count = 0;
+        int start = from;
+        int lastNonEmpty = 0; // field count up to the last non-empty field
+        int i = from;
+        while (i < to) {
+            if (buf[i] == '%' && i + 1 < to && buf[i + 1] == '%') {
+                if (count == FIELDS) return onlySeparatorsLeft(buf, i, to) ? lastNonEmpty : FIELDS + 1;
+                bounds[2 * count] = start;
+                bounds[2 * count + 1] = i;
+                count++;
+                if (i > start) lastNonEmpty = count;
+                i += 2;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (count == FIELDS) {
+            // A seventh field only counts if it is non-empty (split drops trailing empties)
+            if (to > start) return FIELDS + 1;
+            return lastNonEmpty;
+        }
+        bounds[2 * count] = start;
+        bounds[2 * count + 1] = to;
+        count++;
+        if (to > start) lastNonEmpty = count;
+        return lastNonEmpty;
+    }
+
+    /**
+     * True if buf[from..to) is nothing but "%%" separators, i.e. only empty fields follow.
+     */
+    private static boolean onlySeparatorsLeft(byte[] buf, int from, int to) {
+        if (((to - from) & 1) != 0) return false; // an odd '%' would form a non-empty field
+        for (int i = from; i < to; i++) {
+            if (buf[i] != '%') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a rating like SongFileUtils does: Double.parseDouble, or 0 when the text is not a number.
+     * Plain decimals are parsed straight from the bytes; anything else falls back to Double.parseDouble.
+     */
+    static double parseRating(byte[] buf, int from, int to) {
+        long digitsValue = 0; // all digits, ignoring the dot
+        long scale = 1;
+        boolean dot = false;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b >= '0' && b <= '9') {
+                // up to 15 digits the value and scale are exact doubles, so one division rounds like parseDouble
+                if (++digits > 15) return parseSlow(buf, from, to);
+                digitsValue = digitsValue * 10 + (b - '0');
+                if (dot) scale *= 10;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return parseSlow(buf, from, to);
+            }
+        }
+        if (digits == 0) return parseSlow(buf, from, to);
+        return (double) digitsValue / scale;
+    }
+
+    private static double parseSlow(byte[] buf, int from, int to) {
+        try {
+            return Double.parseDouble(new String(buf, from, to - from, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Index of the next "~~" separator in buf[from..to), or to if there is none.
+     */
+    static int nextTagSeparator(byte[] buf, int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (buf[i] == '~' && buf[i + 1] == '~') return i;
+        }
+        return to;
+    }
+
+    /**
+     * True if the tag in buf[from..to) is blank once trimmed (Song.addTag ignores such tags).
+     */
+    static boolean isBlank(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((buf[i] & 0xFF) > ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hash of the trimmed, lower-cased tag; equal to tag.trim().toLowerCase(Locale.ROOT).hashCode().
+     * ASCII tags are hashed straight from the bytes.
+     */
+    static int tagHash(byte[] buf, int from, int to) {
+        while (from < to && (buf[from] & 0xFF) <= ' ') from++; // trim like String.trim
+        while (to > from && (buf[to - 1] & 0xFF) <= ' ') to--;
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            int c = buf[i];
+            if (c < 0) { // non-ASCII: let String handle decoding and case rules
+                return new String(buf, from, to - from, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT).hashCode();
+            }
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            h = 31 * h + c;
+        }
+        return h;
+    }
+
+    /**
+     * Hash of a tag given as a String, consistent with tagHash(byte[], int, int).
+     */
+    static int tagHash(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT).hashCode();
+    }
+}
@@ -0,0 +1,235 @@
+package utils;
+
+import business.Song;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * "Play next" queue drawn from a Playlist, created with Playlist.queue().
+ *
+ * Songs are drawn at random without replacement, with probability proportional to their rating
+ * (ratings below MIN_WEIGHT count as MIN_WEIGHT, so low-rated songs still come up eventually).
+ * Songs by any of the artists of the last artistGap songs are held back; if nothing else is left
+ * the oldest artist in that window is let through early rather than ending the queue.
+ *
+ * Weights live in two levels of Fenwick trees: one over artists (an artist's weight is the sum of
+ * its unplayed songs, or 0 while held back) and one per artist over its songs. A draw picks an
+ * artist, then one of its songs, and holding an artist back is a single update, so each song
+ * costs O(log n) and is produced only as the queue is consumed. The queue works on the playlist version it was created from: songs
+ * added or re-rated later are not seen.
+ */
+public final class SongQueue implements Iterator<Song> {
+    public static final double MIN_WEIGHT = 0.1;
+
+    private final Song[] songs; // queue entries (playlist songs, after the tag filter)
+    private final int[][] byArtist; // entries of each artist
+    private final double[][] songWeights; // per artist: weight of each of its entries, 0 once played
+    private final double[][] songTrees; // per artist: Fenwick tree over songWeights, 1-based
+    private final int[] unplayed; // per artist: entries not yet played
+    private final double[] artistWeights; // per artist: sum of unplayed weights, 0 while held back
+    private final double[] artistTree; // Fenwick tree over artistWeights
+    private final int[] blocked; // how many window slots hold each artist
+    private final int[] window; // artists of the last artistGap songs, as a ring
+    private int windowStart;
+    private int windowLength;
+    private int remaining; // entries not yet played
+    private int drawableArtists; // artists with unplayed entries that are not held back
+    private final Random random;
+
+    SongQueue(Song[] source, double[][] ratings, int size, String tag, int artistGap, long seed) {
+        if (artistGap < 0) throw new IllegalArgumentException("artistGap must not be negative");
+        // Keep the songs that can be queued
+        Song[] picked = new Song[size];
+        double[] weights = new double[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            Song s = source[i];
+            if (s == null || (tag != null && !s.containsTag(tag))) continue;
+            picked[n] = s;
+            double r = RatingColumn.get(ratings, i);
+            weights[n] = r >= MIN_WEIGHT ? r : MIN_WEIGHT; // also catches NaN
+            n++;
+        }
+        songs = new Song[n];
+        for (int i = 0; i < n; i++) {
+            songs[i] = picked[i];
+        }
+
+        // Group entries by artist, ignoring case
+        HashMap<String, Integer> groups = new HashMap<>();
+        int[] artistOf = new int[n];
+        int[] groupSizes = new int[n];
+        for (int i = 0; i < n; i++) {
+            String artist = songs[i].getArtist();
+            String key = artist == null ? null : artist.toLowerCase(Locale.ROOT);
+            Integer group = groups.get(key);
+            if (group == null) {
+                group = groups.size();
+                groups.put(key, group);
+            }
+            artistOf[i] = group;
+            groupSizes[group]++;
+        }
+        int artists = groups.size();
+        byArtist = new int[artists][];
+        songWeights = new double[artists][];
+        for (int g = 0; g < artists; g++) {
+            byArtist[g] = new int[groupSizes[g]];
+            songWeights[g] = new double[groupSizes[g]];
+            groupSizes[g] = 0; // reused as fill position
+        }
+        for (int i = 0; i < n; i++) {
+            int g = artistOf[i];
+            songWeights[g][groupSizes[g]] = weights[i];
+            byArtist[g][groupSizes[g]++] = i;
+        }
+
+        songTrees = new double[artists][];
+        unplayed = new int[artists];
+        artistWeights = new double[artists];
+        for (int g = 0; g < artists; g++) {
+            songTrees[g] = buildTree(songWeights[g]);
+            unplayed[g] = byArtist[g].length;
+            artistWeights[g] = prefixSum(songTrees[g], byArtist[g].length);
+        }
+        artistTree = buildTree(artistWeights);
+
+        blocked = new int[artists];
+        window = new int[artistGap];
+        remaining = n;
+        drawableArtists = artists;
+        random = new Random(seed);
+    }
+
+    /**
+     * @return number of songs not yet taken from the queue
+     */
+    public int remaining() {
+        return remaining;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * Draws the next song.
+     *
+     * @return next song to play
+     * @throws NoSuchElementException if every song has been played
+     */
+    @Override
+    public Song next() {
+        if (remaining == 0) throw new NoSuchElementException("queue is exhausted");
+        while (drawableArtists == 0) { // only held-back artists left: shrink the window
+            leaveWindow();
+        }
+        int artist = draw(artistTree, artistWeights);
+        double[] weights = songWeights[artist];
+        int local = draw(songTrees[artist], weights);
+        update(songTrees[artist], local, -weights[local]);
+        weights[local] = 0;
+        remaining--;
+        unplayed[artist]--;
+        // The artist's weight is re-read from its tree; exactly 0 once it has nothing left
+        setArtistWeight(artist, unplayed[artist] == 0 ? 0 : prefixSum(songTrees[artist], weights.length));
+        if (unplayed[artist] == 0) drawableArtists--;
+        enterWindow(artist);
+        return songs[byArtist[artist][local]];
+    }
+
+    /**
+     * Holds back an artist for the next artistGap draws, pushing the oldest one out when the window is full.
+     */
+    private void enterWindow(int artist) {
+        if (window.length == 0) return;
+        if (windowLength == window.length) leaveWindow();
+        window[(windowStart + windowLength) % window.length] = artist;
+        windowLength++;
+        if (blocked[artist]++ == 0 && unplayed[artist] > 0) { // newly held back
+            setArtistWeight(artist, 0);
+            drawableArtists--;
+        }
+    }
+
+    /**
+     * Drops the oldest artist from the window, letting its songs be drawn again once it is no longer held.
+     */
+    private void leaveWindow() {
+        int artist = window[windowStart];
+        windowStart = (windowStart + 1) % window.length;
+        windowLength--;
+        if (--blocked[artist] == 0 && unplayed[artist] > 0) {
+            setArtistWeight(artist, prefixSum(songTrees[artist], songWeights[artist].length));
+            drawableArtists++;
+        }
+    }
+
+    private void setArtistWeight(int artist, double value) {
+        if (blocked[artist] > 0 && value > 0) return; // stays 0 while held back
+        update(artistTree, artist, value - artistWeights[artist]);
+        artistWeights[artist] = value;
+    }
+
+    /**
+     * Picks an index with probability proportional to weights[index], using the Fenwick tree over them.
+     */
+    private int draw(double[] tree, double[] weights) {
+        int n = weights.length;
+        double target = random.nextDouble() * prefixSum(tree, n);
+        int position = 0; // walk down the tree: largest position whose prefix sum is <= target
+        for (int step = Integer.highestOneBit(n); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= n && tree[next] <= target) {
+                position = next;
+                target -= tree[next];
+            }
+        }
+        int index = Math.min(position, n - 1);
+        if (weights[index] > 0) return index;
+        // Rounding drift landed on an empty index: take the nearest positive one
+        for (int i = index + 1; i < n; i++) {
+            if (weights[i] > 0) return i;
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            if (weights[i] > 0) return i;
+        }
+        throw new IllegalStateException("nothing left to draw"); // callers check the counts first
+    }
+
+    /**
+     * Linear-time Fenwick tree build.
+     */
+    private static double[] buildTree(double[] weights) {
+        double[] tree = new double[weights.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+        return tree;
+    }
+
+    private static void update(double[] tree, int index, double delta) {
+        if (delta == 0) return;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sum of weights[0..count-1].
+     */
+    private static double prefixSum(double[] tree, int count) {
+        double sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
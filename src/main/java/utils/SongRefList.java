@@ -0,0 +1,137 @@
+package utils;
+
+import business.Song;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lightweight playlist: an ordered list of song ids into a shared SongCatalogue.
+ * Each id appears at most once; a BitSet over ids gives O(1) membership for set operations.
+ */
+public class SongRefList {
+    private final SongCatalogue catalogue;
+    private int[] ids;
+    private int size;
+    private final BitSet members = new BitSet();
+
+    public SongRefList(SongCatalogue catalogue) {
+        this(catalogue, 8);
+    }
+
+    SongRefList(SongCatalogue catalogue, int capacity) {
+        this.catalogue = catalogue;
+        this.ids = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a song id unless it is already in the list.
+     *
+     * @param id catalogue id
+     * @return true if added
+     */
+    public boolean add(int id) {
+        if (id < 0 || id >= catalogue.size()) throw new IndexOutOfBoundsException("song id " + id);
+        if (members.get(id)) return false;
+        if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+        ids[size++] = id;
+        members.set(id);
+        return true;
+    }
+
+    /**
+     * Interns the song in the shared catalogue and appends its id.
+     *
+     * @param s song to add
+     * @return true if added, false if null or already present
+     */
+    public boolean add(Song s) {
+        if (s == null) return false;
+        return add(catalogue.intern(s));
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && members.get(id);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int idAt(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("position " + index + " of " + size);
+        return ids[index];
+    }
+
+    /**
+     * @return copy of the ids in playlist order
+     */
+    public int[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Resolves the ids to the shared Song objects (no song is copied).
+     *
+     * @return songs in playlist order
+     */
+    public Song[] songs() {
+        Song[] result = new Song[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = catalogue.get(ids[i]);
+        }
+        return result;
+    }
+
+    public SongCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Songs of this list followed by the songs of other that are not in this list.
+     */
+    public SongRefList union(SongRefList other) {
+        checkSameCatalogue(other);
+        SongRefList result = copy(size + other.size);
+        for (int i = 0; i < other.size; i++) {
+            result.add(other.ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Songs of this list that are also in other, in this list's order.
+     */
+    public SongRefList intersection(SongRefList other) {
+        checkSameCatalogue(other);
+        SongRefList result = new SongRefList(catalogue, Math.min(size, other.size));
+        for (int i = 0; i < size; i++) {
+            if (other.members.get(ids[i])) result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Songs of this list that are not in other ("in A but not B"), in this list's order.
+     */
+    public SongRefList difference(SongRefList other) {
+        checkSameCatalogue(other);
+        SongRefList result = new SongRefList(catalogue, size);
+        for (int i = 0; i < size; i++) {
+            if (!other.members.get(ids[i])) result.add(ids[i]);
+        }
+        return result;
+    }
+
+    private SongRefList copy(int capacity) {
+        SongRefList result = new SongRefList(catalogue, capacity);
+        System.arraycopy(ids, 0, result.ids, 0, size);
+        result.size = size;
+        result.members.or(members);
+        return result;
+    }
+
+    private void checkSameCatalogue(SongRefList other) {
+        if (other.catalogue != catalogue) throw new IllegalArgumentException("playlists belong to different catalogues");
+    }
+}
@@ -0,0 +1,98 @@
+package utils;
+
+import business.Song;
+
+import java.io.IOException;
+
+/**
+ * Renders whole result sets into a caller-supplied Appendable in one pass.
+ * Text is built in a presized StringBuilder and handed to the output in large chunks,
+ * so printing N songs costs a handful of writes instead of one flush per line.
+ */
+public final class SongRenderer {
+    public static final String SEPARATOR = "---------------------------";
+
+    // Builder contents are handed to the output once they pass this many characters
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private SongRenderer() {
+    }
+
+    /**
+     * Writes every song as a numbered block:
+     * label + number, the formatted song (or "(null)"), then a separator line.
+     *
+     * @param out destination, e.g. System.out or a buffered writer
+     * @param songs songs to render
+     * @param label heading printed before each number, e.g. "Song #"
+     * @throws IOException if the destination fails
+     */
+    public static void renderNumbered(Appendable out, Song[] songs, String label) throws IOException {
+        renderNumbered(out, songs, songs.length, label);
+    }
+
+    /**
+     * Same as renderNumbered(out, songs, label) but only for songs[0..count-1].
+     *
+     * @param out destination
+     * @param songs songs to render
+     * @param count number of leading entries to render
+     * @param label heading printed before each number
+     * @throws IOException if the destination fails
+     */
+    public static void renderNumbered(Appendable out, Song[] songs, int count, String label) throws IOException {
+        if (count <= 0) return;
+        StringBuilder sb = new StringBuilder(initialCapacity(songs, count));
+        for (int i = 0; i < count; i++) {
+            sb.append(label).append(i + 1).append('\n');
+            Song s = songs[i];
+            if (s == null) {
+                sb.append("(null)");
+            } else {
+                s.formatTo(sb);
+            }
+            sb.append('\n').append(SEPARATOR).append('\n');
+
+            if (sb.length() >= CHUNK_SIZE) { // hand over a full chunk and reuse the builder
+                out.append(sb);
+                sb.setLength(0);
+            }
+        }
+        out.append(sb);
+    }
+
+    /**
+     * Writes one line per item: prefix + item.
+     *
+     * @param out destination
+     * @param items values to list
+     * @param prefix text before each item, e.g. "- "
+     * @throws IOException if the destination fails
+     */
+    public static void renderList(Appendable out, String[] items, String prefix) throws IOException {
+        if (items.length == 0) return;
+        StringBuilder sb = new StringBuilder(Math.min(CHUNK_SIZE, items.length * (prefix.length() + 16)));
+        for (String item : items) {
+            sb.append(prefix).append(item).append('\n');
+            if (sb.length() >= CHUNK_SIZE) {
+                out.append(sb);
+                sb.setLength(0);
+            }
+        }
+        out.append(sb);
+    }
+
+    /**
+     * Sizes the builder from the first songs, capped at one chunk.
+     */
+    private static int initialCapacity(Song[] songs, int count) {
+        int sample = Math.min(count, 16); // small sample is enough for an estimate
+        long total = 0;
+        for (int i = 0; i < sample; i++) {
+            Song s = songs[i];
+            total += (s == null ? 8 : s.formattedLengthEstimate()) + SEPARATOR.length() + 16;
+        }
+        long estimate = total * count / sample;
+        return (int) Math.min(CHUNK_SIZE + 1024, estimate);
+    }
+}
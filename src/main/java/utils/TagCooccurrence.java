@@ -0,0 +1,173 @@
+package utils;
+
+import business.Song;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Sparse tag co-occurrence counts, maintained incrementally as songs and tags are added.
+ *
+ * Every distinct tag (case-insensitive) gets a dense int id; for each id an IntIntHashMap
+ * holds "other tag id -> number of songs carrying both tags". A top-K query only touches
+ * the neighbours of one tag, so its cost is independent of the number of songs.
+ */
+class TagCooccurrence {
+    private static final String[] NO_TAGS = new String[0];
+
+    private final HashMap<String, Integer> ids = new HashMap<>(); // lower-cased tag -> id
+    private final ArrayList<String> names = new ArrayList<>(); // id -> first spelling seen
+    private final ArrayList<IntIntHashMap> neighbours = new ArrayList<>(); // id -> co-occurrence counts
+
+    /**
+     * Counts every pair of tags on a newly stored song.
+     */
+    void addSong(Song s) {
+        addPairs(s.getTags(), 0, s.getTagCount(), 1);
+    }
+
+    /**
+     * Counts the pairs between a freshly added tag and the song's other tags.
+     */
+    void tagAdded(Song s, String tag) {
+        int added = idFor(tag);
+        String[] tags = s.getTags();
+        for (int i = 0; i < s.getTagCount(); i++) {
+            if (tags[i] == null) continue;
+            int other = idFor(tags[i]);
+            if (other == added) continue;
+            neighbours.get(added).addTo(other, 1);
+            neighbours.get(other).addTo(added, 1);
+        }
+    }
+
+    /**
+     * Re-counts a song after setTagCount moved the end of its used tags from oldCount to the current count.
+     */
+    void tagCountChanged(Song s, int oldCount) {
+        String[] tags = s.getTags();
+        addPairs(tags, 0, Math.min(Math.max(oldCount, 0), tags.length), -1);
+        addPairs(tags, 0, Math.min(Math.max(s.getTagCount(), 0), tags.length), 1);
+    }
+
+    /**
+     * Number of songs carrying both tags (case-insensitive).
+     */
+    int count(String a, String b) {
+        Integer first = lookup(a);
+        Integer second = lookup(b);
+        if (first == null || second == null) return 0;
+        return neighbours.get(first).get(second);
+    }
+
+    /**
+     * Up to k tags that most often appear together with tag, most frequent first.
+     * Ties are broken by the order in which tags were first seen.
+     */
+    String[] topRelated(String tag, int k) {
+        Integer id = lookup(tag);
+        if (id == null || k <= 0) return NO_TAGS;
+        IntIntHashMap counts = neighbours.get(id);
+        int[] keys = counts.keyTable();
+        int[] values = counts.valueTable();
+
+        // Bounded min-heap of (count, id); root is the weakest of the current top k
+        int[] heapIds = new int[Math.min(k, counts.size())];
+        int[] heapCounts = new int[heapIds.length];
+        int heapSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int other = keys[i];
+            if (other < 0 || values[i] <= 0) continue;
+            if (heapSize < heapIds.length) {
+                heapIds[heapSize] = other;
+                heapCounts[heapSize] = values[i];
+                siftUp(heapIds, heapCounts, heapSize++);
+            } else if (stronger(values[i], other, heapCounts[0], heapIds[0])) {
+                heapIds[0] = other;
+                heapCounts[0] = values[i];
+                siftDown(heapIds, heapCounts, heapSize);
+            }
+        }
+
+        // Pop weakest first, filling the result from the back
+        String[] result = new String[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = names.get(heapIds[0]);
+            heapSize--;
+            heapIds[0] = heapIds[heapSize];
+            heapCounts[0] = heapCounts[heapSize];
+            siftDown(heapIds, heapCounts, heapSize);
+        }
+        return result;
+    }
+
+    private void addPairs(String[] tags, int from, int to, int delta) {
+        for (int i = from; i < to; i++) {
+            if (tags[i] == null) continue;
+            int a = idFor(tags[i]);
+            for (int j = i + 1; j < to; j++) {
+                if (tags[j] == null) continue;
+                int b = idFor(tags[j]);
+                if (a == b) continue;
+                neighbours.get(a).addTo(b, delta);
+                neighbours.get(b).addTo(a, delta);
+            }
+        }
+    }
+
+    private Integer lookup(String tag) {
+        if (tag == null) return null;
+        return ids.get(tag.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private int idFor(String tag) {
+        String key = tag.trim().toLowerCase(Locale.ROOT);
+        Integer id = ids.get(key);
+        if (id != null) return id;
+        int created = names.size();
+        ids.put(key, created);
+        names.add(tag.trim());
+        neighbours.add(new IntIntHashMap());
+        return created;
+    }
+
+    /**
+     * Higher count wins; on equal counts the earlier-seen (smaller) id wins.
+     */
+    private static boolean stronger(int countA, int idA, int countB, int idB) {
+        return countA > countB || (countA == countB && idA < idB);
+    }
+
+    private static void siftUp(int[] ids, int[] counts, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!stronger(counts[parent], ids[parent], counts[i], ids[i])) break;
+            swap(ids, counts, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, int[] counts, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int weakest = left;
+            int right = left + 1;
+            if (right < size && stronger(counts[left], ids[left], counts[right], ids[right])) weakest = right;
+            if (!stronger(counts[i], ids[i], counts[weakest], ids[weakest])) return;
+            swap(ids, counts, i, weakest);
+            i = weakest;
+        }
+    }
+
+    private static void swap(int[] ids, int[] counts, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+}
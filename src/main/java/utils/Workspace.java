@@ -0,0 +1,123 @@
+package utils;
+
+import business.Song;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * A set of named playlists sharing one SongCatalogue.
+ * Songs are stored once in the catalogue; each playlist is an ordered list of song ids.
+ */
+public class Workspace {
+    private final SongCatalogue catalogue = new SongCatalogue();
+    private final LinkedHashMap<String, SongRefList> playlists = new LinkedHashMap<>();
+    // Playlist handed out by toPlaylist for each name, kept so its song listeners are registered only once
+    private final HashMap<String, Materialized> materialized = new HashMap<>();
+
+    /**
+     * A Playlist built from a SongRefList and how many of the list's songs it holds.
+     */
+    private static final class Materialized {
+        private final Playlist playlist;
+        private int size;
+
+        Materialized(Playlist playlist, int size) {
+            this.playlist = playlist;
+            this.size = size;
+        }
+    }
+
+    public SongCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Creates an empty playlist.
+     *
+     * @param name unique playlist name
+     * @return the new playlist
+     */
+    public SongRefList createPlaylist(String name) {
+        if (name == null) throw new IllegalArgumentException("playlist name is null");
+        if (playlists.containsKey(name)) throw new IllegalArgumentException("playlist already exists: " + name);
+        SongRefList list = new SongRefList(catalogue);
+        playlists.put(name, list);
+        return list;
+    }
+
+    /**
+     * Creates a playlist from songs, interning each one into the shared catalogue.
+     *
+     * @param name unique playlist name
+     * @param songs songs to add (nulls and duplicates skipped)
+     * @return the new playlist
+     */
+    public SongRefList createPlaylist(String name, Song[] songs) {
+        SongRefList list = createPlaylist(name);
+        for (Song s : songs) {
+            list.add(s);
+        }
+        return list;
+    }
+
+    /**
+     * Stores a result (for example a union) under a name.
+     *
+     * @param name unique playlist name
+     * @param list playlist over this workspace's catalogue
+     */
+    public void putPlaylist(String name, SongRefList list) {
+        if (list.getCatalogue() != catalogue) throw new IllegalArgumentException("playlist belongs to another catalogue");
+        if (playlists.containsKey(name)) throw new IllegalArgumentException("playlist already exists: " + name);
+        playlists.put(name, list);
+    }
+
+    /**
+     * @return the playlist, or null if there is none with that name
+     */
+    public SongRefList getPlaylist(String name) {
+        return playlists.get(name);
+    }
+
+    /**
+     * Removes a playlist; a Playlist built from it by toPlaylist is detached from the shared songs.
+     */
+    public boolean removePlaylist(String name) {
+        Materialized m = materialized.remove(name);
+        if (m != null) m.playlist.detach();
+        return playlists.remove(name) != null;
+    }
+
+    public Set<String> playlistNames() {
+        return playlists.keySet();
+    }
+
+    /**
+     * Regular Playlist over the same Song objects, for the search, sort and statistics operations.
+     * It is built on the first call and kept: later calls return the same Playlist, with songs
+     * added to the list since then appended. Building one per call would leave a listener on
+     * every shared song for each call.
+     *
+     * @param name playlist name
+     * @return materialized playlist, or null if there is none with that name
+     */
+    public Playlist toPlaylist(String name) {
+        SongRefList list = playlists.get(name);
+        if (list == null) return null;
+        Materialized m = materialized.get(name);
+        if (m == null) {
+            m = new Materialized(new Playlist(list.songs()), list.size());
+            materialized.put(name, m);
+        } else if (m.size < list.size()) { // lists only grow: append what is new
+            Song[] added = new Song[list.size() - m.size];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = catalogue.get(list.idAt(m.size + i));
+            }
+            m.playlist.addSongs(added);
+            m.size = list.size();
+        }
+        return m.playlist;
+    }
+}
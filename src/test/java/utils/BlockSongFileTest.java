@@ -0,0 +1,63 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class BlockSongFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void songsRoundTripAcrossBlocks() throws IOException {
+        Song[] songs = new Song[1000];
+        for (int i = 0; i < songs.length; i++) {
+            String[] tags = i % 10 == 0 ? new String[0] : new String[]{"t" + (i % 3), "drums"};
+            songs[i] = new Song("T" + i, "A" + (i % 7), "Al", i % 5, "Rock", tags);
+        }
+        Path file = dir.resolve("songs.bsf");
+        SongFileUtils.writeCompressedSongFile(file.toString(), songs, 64);
+
+        try (BlockSongFile f = BlockSongFile.open(file)) {
+            assertEquals(1000, f.songCount());
+            assertEquals(16, f.blockCount());
+            assertArrayEquals(songs, f.readAll(true));
+            assertArrayEquals(songs, f.readAll(false));
+            assertEquals(songs[777], f.readSong(777));
+            assertEquals(songs[0], f.readSong(0));
+            assertEquals(songs[999], f.readSong(999));
+        }
+    }
+
+    @Test
+    void compressedLinesReadBackAsTheyWereChecked() throws IOException {
+        Path text = dir.resolve("songs.txt");
+        Files.write(text, List.of(
+                "T1%%A%%Al%%1%%Rock%%drums%%", // trailing separator: valid for readSongFile
+                "T2%%A%%Al%%2%%Rock%%drums~~bass",
+                "not a song",
+                "T3%%A%%Al%%3%%%%"), StandardCharsets.UTF_8); // empty genre and tags: dropped by readSongFile
+        Path compressed = dir.resolve("songs.bsf");
+
+        long written = SongFileUtils.compressSongFile(text.toString(), compressed.toString(), 2);
+        Song[] expected = SongFileUtils.readSongFile(text.toString());
+        Song[] read = SongFileUtils.readCompressedSongFile(compressed.toString());
+
+        assertEquals(expected.length, written);
+        assertEquals(expected.length, read.length);
+        for (int i = 0; i < read.length; i++) {
+            assertNotNull(read[i]);
+            assertEquals(expected[i], read[i]);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaMergerTest {
+
+    @TempDir
+    Path dir;
+
+    private String file(String... lines) throws IOException {
+        Path path = dir.resolve("songs.txt");
+        Files.write(path, List.of(lines), StandardCharsets.UTF_8);
+        return path.toString();
+    }
+
+    @Test
+    void secondMergeOnlyAppliesChangedLines() throws IOException {
+        Playlist p = new Playlist(new Song[0]);
+        DeltaMerger merger = new DeltaMerger(p);
+        DeltaMerger.Result first = merger.merge(file(
+                "One%%A%%X%%3.0%%Rock%%drums",
+                "Two%%B%%Y%%4.0%%Pop%%synth",
+                "broken line"));
+        assertEquals(2, first.getInserted());
+        assertEquals(1, first.getRejected());
+        assertEquals(2, p.getAllSongs().length);
+
+        DeltaMerger.Result second = merger.merge(file(
+                "One%%A%%X%%3.0%%Rock%%drums",
+                "Two%%B%%Y%%5.0%%Jazz%%synth~~sax",
+                "Three%%C%%Z%%1.0%%Folk%%guitar",
+                "broken line"));
+        assertEquals(1, second.getSkipped()); // "One" was not parsed again
+        assertEquals(1, second.getUpdated());
+        assertEquals(1, second.getInserted());
+        assertEquals(1, second.getRejected());
+
+        Song two = p.findSong("Two", "B", "Y");
+        assertEquals(5.0, two.getRating());
+        assertEquals("Jazz", two.getGenre());
+        assertTrue(two.containsTag("sax"));
+        assertTrue(two.containsTag("synth"));
+    }
+
+    @Test
+    void editsInTheAppSurviveUntilTheLineChanges() throws IOException {
+        Playlist p = new Playlist(new Song[0]);
+        DeltaMerger merger = new DeltaMerger(p);
+        String original = "One%%A%%X%%3.0%%Rock%%drums";
+        merger.merge(file(original));
+        Song one = p.findSong("One", "A", "X");
+        one.setRating(1.0); // edited in the app
+
+        assertEquals(1, merger.merge(file(original)).getSkipped());
+        assertEquals(1.0, one.getRating());
+
+        merger.merge(file("One%%A%%X%%4.0%%Rock%%drums"));
+        assertEquals(4.0, one.getRating());
+        // Going back to a line seen before parses it again rather than skipping it
+        DeltaMerger.Result back = merger.merge(file(original));
+        assertEquals(0, back.getSkipped());
+        assertEquals(3.0, one.getRating());
+    }
+
+    @Test
+    void fingerprintIsFnv1a() {
+        assertEquals(0xcbf29ce484222325L, DeltaMerger.fingerprint(""));
+        assertEquals(0xaf63dc4c8601ec8cL, DeltaMerger.fingerprint("a"));
+    }
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalSongSorterTest {
+    private static final long SMALL_BUDGET = 64 * 1024; // the minimum: a few hundred lines per run
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Song lines with few distinct keys (lots of ties), plus a malformed line every 1000.
+     */
+    private static List<String> lines(int count, long seed) {
+        Random random = new Random(seed);
+        String[] artists = {"abba", "Queen", "ABBA", "queen", "Muse"};
+        ArrayList<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 1000 == 999) {
+                lines.add("not a song line " + i);
+                continue;
+            }
+            StringBuilder tags = new StringBuilder("t0");
+            int tagCount = 1 + random.nextInt(4);
+            for (int t = 1; t < tagCount; t++) {
+                tags.append("~~t").append(t);
+            }
+            lines.add("Title " + i + "%%" + artists[random.nextInt(artists.length)] + "%%Album%%"
+                    + random.nextInt(6) + ".0%%Rock%%" + tags);
+        }
+        return lines;
+    }
+
+    /**
+     * What a stable in-memory sort of the well-formed lines gives.
+     */
+    private static List<String> expected(List<String> lines, ExternalSongSorter.Order order) {
+        ArrayList<String> valid = new ArrayList<>();
+        for (String line : lines) {
+            if (SongFileUtils.parseSongLine(line) != null) valid.add(line);
+        }
+        Comparator<String> byKey;
+        switch (order) {
+            case TAG_COUNT:
+                byKey = Comparator.comparingInt((String l) -> SongFileUtils.parseSongLine(l).getTagCount()).reversed();
+                break;
+            case RATING:
+                byKey = Comparator.comparingDouble((String l) -> SongFileUtils.parseSongLine(l).getRating()).reversed();
+                break;
+            default:
+                byKey = Comparator.comparing((String l) -> SongFileUtils.parseSongLine(l).getArtist(),
+                        String.CASE_INSENSITIVE_ORDER);
+                break;
+        }
+        valid.sort(byKey); // List.sort is stable
+        return valid;
+    }
+
+    private Path write(List<String> lines) throws IOException {
+        Path input = dir.resolve("input.txt");
+        Files.write(input, lines, StandardCharsets.UTF_8);
+        return input;
+    }
+
+    private static long filesIn(Path tempDir) throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void smallFileSortsInMemory() throws IOException {
+        List<String> lines = lines(200, 1);
+        Path output = dir.resolve("sorted.txt");
+        Path temp = Files.createDirectory(dir.resolve("runs"));
+        ExternalSongSorter.Result result = new ExternalSongSorter(ExternalSongSorter.Order.RATING, SMALL_BUDGET, temp)
+                .sort(write(lines), output);
+        assertEquals(0, result.getRuns());
+        assertEquals(expected(lines, ExternalSongSorter.Order.RATING), Files.readAllLines(output, StandardCharsets.UTF_8));
+        assertEquals(0, filesIn(temp));
+    }
+
+    @Test
+    void manyRunsMergeToTheStableOrder() throws IOException {
+        List<String> lines = lines(20_000, 2);
+        Path input = write(lines);
+        for (ExternalSongSorter.Order order : ExternalSongSorter.Order.values()) {
+            Path output = dir.resolve("sorted-" + order + ".txt");
+            Path temp = Files.createDirectory(dir.resolve("runs-" + order));
+            ExternalSongSorter.Result result = new ExternalSongSorter(order, SMALL_BUDGET, temp).sort(input, output);
+            assertTrue(result.getRuns() > 1, "expected spilled runs, got " + result.getRuns());
+            assertEquals(20, result.getMalformed());
+            assertEquals(lines.size() - 20, result.getWritten());
+            assertEquals(expected(lines, order), Files.readAllLines(output, StandardCharsets.UTF_8), order.toString());
+            assertEquals(0, filesIn(temp)); // every run file is deleted
+        }
+    }
+
+    @Test
+    void moreRunsThanTheFanInTakeExtraMergePasses() throws IOException {
+        List<String> lines = lines(60_000, 3);
+        Path output = dir.resolve("sorted.txt");
+        Path temp = Files.createDirectory(dir.resolve("runs"));
+        ExternalSongSorter.Result result = new ExternalSongSorter(ExternalSongSorter.Order.TAG_COUNT, SMALL_BUDGET, temp)
+                .sort(write(lines), output);
+        assertTrue(result.getRuns() > 128, "expected more runs than one merge takes, got " + result.getRuns());
+        List<String> sorted = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(expected(lines, ExternalSongSorter.Order.TAG_COUNT), sorted);
+        assertEquals(0, filesIn(temp));
+
+        // Same order as sorting the songs in a Playlist
+        Playlist p = new Playlist(SongFileUtils.loadSongFile(write(lines).toString()));
+        p.sortSongsByNumTags();
+        Song[] songs = p.getAllSongs();
+        for (int i = 0; i < songs.length; i++) {
+            assertEquals(songs[i].getTitle(), SongFileUtils.parseSongLine(sorted.get(i)).getTitle());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IntIntHashMapTest {
+
+    /**
+     * Every key in the table is found by get, and the table holds exactly the reference entries.
+     */
+    private static void assertSameEntries(HashMap<Integer, Integer> expected, IntIntHashMap map) {
+        assertEquals(expected.size(), map.size());
+        int[] keys = map.keyTable();
+        int[] values = map.valueTable();
+        int stored = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == -1) continue;
+            stored++;
+            assertEquals(expected.get(keys[i]), values[i]);
+            assertEquals(values[i], map.get(keys[i])); // reachable from its home slot
+        }
+        assertEquals(expected.size(), stored);
+    }
+
+    @Test
+    void randomAddsAndRemovalsMatchAHashMap() {
+        Random random = new Random(31);
+        for (int keyRange : new int[]{16, 200, 5000}) { // small ranges mean long probe chains and wrap-around
+            IntIntHashMap map = new IntIntHashMap();
+            HashMap<Integer, Integer> expected = new HashMap<>();
+            for (int op = 0; op < 50_000; op++) {
+                int key = random.nextInt(keyRange);
+                int delta = random.nextInt(3) - 1; // -1, 0 or +1 so entries keep reaching 0
+                int updated = expected.getOrDefault(key, 0) + delta;
+                if (updated == 0) expected.remove(key);
+                else expected.put(key, updated);
+                assertEquals(updated, map.addTo(key, delta));
+                if (op % 1000 == 0) assertSameEntries(expected, map);
+            }
+            assertSameEntries(expected, map);
+            for (int key = 0; key < keyRange; key++) {
+                assertEquals(expected.getOrDefault(key, 0).intValue(), map.get(key));
+            }
+        }
+    }
+
+    @Test
+    void removingEveryEntryEmptiesTheTable() {
+        IntIntHashMap map = new IntIntHashMap(1000);
+        for (int key = 0; key < 1000; key++) {
+            map.addTo(key, key + 1);
+        }
+        for (int key = 999; key >= 0; key -= 2) { // remove in an order unrelated to the probe order
+            map.addTo(key, -(key + 1));
+        }
+        for (int key = 0; key < 1000; key += 2) {
+            assertEquals(key + 1, map.get(key));
+            map.addTo(key, -(key + 1));
+        }
+        assertSameEntries(new HashMap<>(), map);
+        assertThrows(IllegalArgumentException.class, () -> map.addTo(-1, 1));
+    }
+
+    @Test
+    void cooccurrenceCountsFollowTagChanges() {
+        TagCooccurrence pairs = new TagCooccurrence();
+        Song a = new Song("A", "Artist", "Album", 3, "Rock", new String[]{"drums", "guitar", "live"});
+        Song b = new Song("B", "Artist", "Album", 3, "Rock", new String[]{"Drums", "guitar"});
+        pairs.addSong(a);
+        pairs.addSong(b);
+        assertEquals(2, pairs.count("drums", "GUITAR"));
+        assertArrayEquals(new String[]{"guitar", "live"}, pairs.topRelated("drums", 5));
+
+        int oldCount = a.getTagCount();
+        a.setTagCount(2); // drops "live"
+        pairs.tagCountChanged(a, oldCount);
+        assertEquals(0, pairs.count("drums", "live"));
+        assertArrayEquals(new String[]{"guitar"}, pairs.topRelated("drums", 5));
+    }
+}
@@ -0,0 +1,115 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazySongFileTest {
+    private static final String[] RATINGS = {"3.0", "4.5", "-1", "1e2", "abc", "007", " 2.5", "0.1", "5"};
+    private static final String[] TAGS = {"drums", "Drums", "guitar", "Käse", "live", "synth", "  sax "};
+
+    @TempDir
+    Path dir;
+
+    /**
+     * A file several windows long with mixed line endings, malformed and blank lines and non-ASCII text.
+     */
+    private Path sampleFile(int songs) throws IOException {
+        Random random = new Random(34);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < songs; i++) {
+            if (i % 97 == 0) text.append("malformed ").append(i).append('\n');
+            if (i % 101 == 0) text.append('\n');
+            StringBuilder tags = new StringBuilder();
+            int tagCount = random.nextInt(4);
+            for (int t = 0; t < tagCount; t++) {
+                if (t > 0) tags.append("~~");
+                tags.append(TAGS[random.nextInt(TAGS.length)]);
+            }
+            text.append("Titel ").append(i).append(" ü%%Artist ").append(i % 13).append("%%Album%%")
+                    .append(RATINGS[random.nextInt(RATINGS.length)]).append("%%Rock%%").append(tags)
+                    .append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path path = dir.resolve("songs.txt");
+        Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static void assertSameSong(Song expected, Song actual) {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getTagCount(), actual.getTagCount());
+    }
+
+    @Test
+    void matchesTheEagerLoader() throws IOException {
+        Path path = sampleFile(5000); // a few hundred KB: lines straddle window borders
+        Song[] eager = SongFileUtils.loadSongFile(path.toString());
+        try (LazySongFile lazy = LazySongFile.open(path.toString(), 64)) {
+            assertEquals(eager.length, lazy.size());
+            for (int i = 0; i < eager.length; i++) {
+                assertSameSong(eager[i], lazy.get(i));
+                assertEquals(Double.doubleToLongBits(eager[i].getRating()), Double.doubleToLongBits(lazy.getRating(i)),
+                        "rating of song " + i);
+            }
+            assertTrue(lazy.cachedSongs() <= 64);
+            assertThrows(IndexOutOfBoundsException.class, () -> lazy.get(eager.length));
+        }
+    }
+
+    @Test
+    void searchAndMostPopularAgreeWithPlaylist() throws IOException {
+        Path path = sampleFile(3000);
+        Playlist playlist = new Playlist(SongFileUtils.loadSongFile(path.toString()));
+        try (LazySongFile lazy = LazySongFile.open(path.toString(), 16)) {
+            for (String tag : new String[]{"drums", "KÄSE", "sax", "missing"}) {
+                Song[] expected = playlist.searchByTag(tag);
+                Song[] actual = lazy.searchByTag(tag);
+                assertEquals(expected.length, actual.length, tag);
+                for (int i = 0; i < expected.length; i++) {
+                    assertSameSong(expected[i], actual[i]);
+                }
+            }
+            assertSameSong(playlist.findMostPopular(), lazy.findMostPopular());
+        }
+    }
+
+    @Test
+    void cachedSongsAreReused() throws IOException {
+        Path path = sampleFile(10);
+        try (LazySongFile lazy = LazySongFile.open(path.toString(), 2)) {
+            Song first = lazy.get(0);
+            assertSame(first, lazy.get(0));
+            lazy.get(1);
+            lazy.get(2); // evicts song 0, the least recently used
+            assertEquals(2, lazy.cachedSongs());
+            assertArrayEquals(first.getTags(), lazy.get(0).getTags());
+        }
+    }
+
+    @Test
+    void scannerSplitsFieldsAndParsesRatingsLikeTheParser() {
+        for (String rating : Arrays.asList(RATINGS)) {
+            byte[] line = ("T%%A%%B%%" + rating + "%%G%%x").getBytes(StandardCharsets.UTF_8);
+            int[] bounds = new int[12];
+            assertEquals(6, SongLineScanner.splitFields(line, 0, line.length, bounds));
+            double expected = SongFileUtils.parseSongLine(new String(line, StandardCharsets.UTF_8)).getRating();
+            double actual = SongLineScanner.parseRating(line, bounds[2 * SongLineScanner.RATING],
+                    bounds[2 * SongLineScanner.RATING + 1]);
+            assertEquals(expected, actual, 0, rating);
+        }
+        assertEquals(SongLineScanner.tagHash("Drums"), SongLineScanner.tagHash("drums"));
+    }
+}
@@ -0,0 +1,229 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaylistChangeFeedTest {
+
+    private static Song song(int i) {
+        return new Song("T" + i, "A", "Al", 3, "Rock", new String[]{"drums"});
+    }
+
+    /**
+     * Records events, requesting batch more every time the previous batch has arrived.
+     */
+    private static class Recorder implements Flow.Subscriber<PlaylistChange> {
+        private final long batch;
+        private final int expected;
+        private final List<Long> sequences = new ArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicBoolean inSignal = new AtomicBoolean();
+        private volatile boolean overlapped;
+        private Flow.Subscription subscription;
+        private long outstanding;
+
+        Recorder(long batch, int expected) {
+            this.batch = batch;
+            this.expected = expected;
+        }
+
+        private void enter() {
+            if (!inSignal.compareAndSet(false, true)) overlapped = true;
+        }
+
+        private void exit() {
+            inSignal.set(false);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            enter();
+            this.subscription = subscription;
+            outstanding = batch;
+            subscription.request(batch);
+            try {
+                Thread.sleep(50); // a drain started by request() would overlap with this
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exit();
+        }
+
+        @Override
+        public void onNext(PlaylistChange item) {
+            enter();
+            sequences.add(item.getSequence());
+            if (--outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+            if (sequences.size() == expected) done.countDown();
+            exit();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Test
+    void requestInsideOnSubscribeDoesNotOverlapOnNext() throws InterruptedException {
+        PlaylistChangeFeed feed = new PlaylistChangeFeed(64, ForkJoinPool.commonPool());
+        for (int i = 0; i < 10; i++) {
+            feed.songAdded(song(i));
+        }
+        Recorder r = new Recorder(100, 10);
+        feed.subscribe(r, 1);
+        assertTrue(r.done.await(10, TimeUnit.SECONDS));
+        assertFalse(r.overlapped, "onNext ran while onSubscribe was still running");
+        assertEquals(10, r.sequences.size());
+    }
+
+    @Test
+    void deliversEveryEventInOrderWithSmallDemand() throws Exception {
+        Playlist playlist = new Playlist(new Song[0]);
+        Recorder r = new Recorder(3, 2000);
+        playlist.changeFeed().subscribe(r);
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (int w = 0; w < 4; w++) {
+            int base = w * 500;
+            writers.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    playlist.addSong(song(base + i));
+                }
+            });
+        }
+        writers.shutdown();
+        assertTrue(writers.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(r.done.await(10, TimeUnit.SECONDS));
+        assertNull(r.error.get());
+        assertFalse(r.overlapped);
+        for (int i = 0; i < r.sequences.size(); i++) {
+            assertEquals(i + 1, r.sequences.get(i));
+        }
+    }
+
+    @Test
+    void stalledSubscriberGetsLagErrorAndCanResume() throws InterruptedException {
+        PlaylistChangeFeed feed = new PlaylistChangeFeed(8, ForkJoinPool.commonPool());
+        Recorder stalled = new Recorder(1, Integer.MAX_VALUE) {
+            @Override
+            public void onNext(PlaylistChange item) {
+                // never requests more
+            }
+        };
+        feed.subscribe(stalled);
+        for (int i = 0; i < 20; i++) {
+            feed.songAdded(song(i));
+        }
+        assertTrue(stalled.done.await(10, TimeUnit.SECONDS));
+        PlaylistChangeFeed.FeedLagException lag =
+                assertInstanceOf(PlaylistChangeFeed.FeedLagException.class, stalled.error.get());
+        assertTrue(lag.getMissedFrom() <= 2, "missed from " + lag.getMissedFrom()); // at most event 1 got through
+
+        Recorder resumed = new Recorder(2, 8);
+        feed.subscribe(resumed, 13); // the ring still holds 13..20
+        assertTrue(resumed.done.await(10, TimeUnit.SECONDS));
+        assertNull(resumed.error.get());
+        assertEquals(List.of(13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L), resumed.sequences);
+    }
+
+    @Test
+    void nonPositiveRequestIsAnError() throws InterruptedException {
+        PlaylistChangeFeed feed = new PlaylistChangeFeed(8, ForkJoinPool.commonPool());
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        feed.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(0);
+            }
+
+            @Override
+            public void onNext(PlaylistChange item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+                failed.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.get());
+    }
+
+    @Test
+    void deliversExactlyTheRequestedDemand() {
+        PlaylistChangeFeed feed = new PlaylistChangeFeed(64, Runnable::run); // drains on the calling thread
+        List<Long> received = new ArrayList<>();
+        Flow.Subscription[] handle = new Flow.Subscription[1];
+        feed.subscribe(new Flow.Subscriber<PlaylistChange>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                handle[0] = subscription;
+            }
+
+            @Override
+            public void onNext(PlaylistChange item) {
+                received.add(item.getSequence());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            feed.songAdded(song(i));
+        }
+        assertEquals(0, received.size()); // nothing requested yet
+
+        handle[0].request(3);
+        handle[0].request(2); // demand adds up
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), received);
+
+        handle[0].request(Long.MAX_VALUE);
+        handle[0].request(Long.MAX_VALUE); // overflow stays unbounded instead of going negative
+        assertEquals(10, received.size());
+        feed.songAdded(song(10));
+        assertEquals(11, received.size());
+
+        handle[0].cancel();
+        feed.songAdded(song(11));
+        assertEquals(11, received.size());
+    }
+}
@@ -0,0 +1,157 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaylistTest {
+
+    private static Song song(String title, double rating) {
+        return new Song(title, "Artist", "Album", rating, "Rock", new String[]{"drums"});
+    }
+
+    @Test
+    void constructorDoesNotShareCallerArray() {
+        Song a = song("A", 1);
+        Song[] data = {a, song("B", 2)};
+        Playlist p = new Playlist(data);
+        data[0] = song("C", 3);
+        assertSame(a, p.getAllSongs()[0]);
+    }
+
+    @Test
+    void snapshotKeepsItsVersionWhileThePlaylistChanges() {
+        Song a = new Song("A", "Artist", "Album", 1, "Rock", new String[]{"x"});
+        Song b = new Song("B", "Artist", "Album", 2, "Rock", new String[]{"x", "y", "z"});
+        Playlist p = new Playlist(new Song[]{a, b});
+        PlaylistSnapshot snapshot = p.snapshot();
+        long version = p.getVersion();
+        assertEquals(1, p.openSnapshots());
+
+        a.setRating(Double.NaN);
+        Song c = song("C", 7);
+        assertTrue(p.addSong(c));
+        p.sortSongsByNumTags(); // b, a, c
+
+        // The pinned version still has its songs, in its order
+        assertEquals(version, snapshot.getVersion());
+        assertEquals(2, snapshot.size());
+        assertSame(a, snapshot.get(0));
+        assertSame(b, snapshot.get(1));
+        assertArrayEquals(new Song[]{a, b}, snapshot.toArray());
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(2));
+
+        // The playlist moved on
+        assertTrue(p.getVersion() > version);
+        assertArrayEquals(new Song[]{b, a, c}, p.getAllSongs());
+        assertSame(c, p.findMostPopular());
+        RatingStats stats = p.ratingStats();
+        assertEquals(2, stats.getCount()); // a is now rated NaN
+        assertEquals(4.5, stats.getMean(), 0);
+
+        PlaylistSnapshot second = p.snapshot();
+        assertEquals(2, p.openSnapshots());
+        snapshot.close();
+        snapshot.close(); // no effect the second time
+        assertEquals(1, p.openSnapshots());
+        assertThrows(IllegalStateException.class, () -> snapshot.get(0));
+        assertThrows(IllegalStateException.class, snapshot::toArray);
+        assertArrayEquals(new Song[]{b, a, c}, second.toArray());
+        second.close();
+        assertEquals(0, p.openSnapshots());
+    }
+
+    @Test
+    void ratingStatsFollowRatingChanges() {
+        Song a = song("A", Double.NaN);
+        Playlist p = new Playlist(new Song[]{a, song("B", 4)});
+        assertEquals(1, p.ratingStats().getCount());
+        a.setRating(2);
+        RatingStats stats = p.ratingStats();
+        assertEquals(2, stats.getCount());
+        assertEquals(3, stats.getMean(), 0);
+        assertEquals(2, stats.getMin(), 0);
+    }
+
+    @Test
+    void lookupsBuiltLateSeeEarlierChanges() {
+        Song a = song("A", 1);
+        Song b = song("B", 2);
+        Playlist p = new Playlist(new Song[]{a, b});
+        a.setTitle("A2"); // before any identity lookup
+        p.sortSongsByNumTags();
+        b.setRating(5); // slots rebuilt after the sort
+
+        assertSame(a, p.findSong("A2", "Artist", "Album"));
+        assertEquals(null, p.findSong("A", "Artist", "Album"));
+        assertEquals(false, p.addSong(song("B", 0)));
+        assertEquals(true, p.addSong(song("A", 0)));
+        assertEquals(5, p.ratingStats().getMax(), 0);
+
+        b.setTitle("C"); // identity index exists now and is rekeyed
+        assertSame(b, p.findSong("C", "Artist", "Album"));
+        assertEquals(null, p.findSong("B", "Artist", "Album"));
+    }
+
+    @Test
+    void findMostPopularKeepsTheBaselineNaNResult() {
+        Song nan = song("N", Double.NaN);
+        assertSame(nan, new Playlist(new Song[]{nan}).findMostPopular());
+        assertSame(nan, new Playlist(new Song[]{null, nan, song("B", 5)}).findMostPopular()); // first song wins
+
+        Song best = song("B", 5);
+        assertSame(best, new Playlist(new Song[]{song("A", 1), nan, best, song("C", 5)}).findMostPopular());
+        assertEquals(null, new Playlist(new Song[]{null, null}).findMostPopular());
+    }
+
+    @Test
+    void parallelFindMostPopularAgreesWithTheSerialScan() {
+        Song[] songs = new Song[1000];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = song("T" + i, i % 7 == 0 ? Double.NaN : i % 97);
+        }
+        Playlist serial = new Playlist(songs);
+        serial.setParallelThreshold(Integer.MAX_VALUE);
+        Playlist parallel = new Playlist(songs);
+        parallel.setParallelThreshold(1);
+        assertSame(songs[0], serial.findMostPopular()); // songs[0] is rated NaN
+        assertSame(songs[0], parallel.findMostPopular());
+
+        songs[0] = song("First", 1);
+        serial = new Playlist(songs);
+        serial.setParallelThreshold(Integer.MAX_VALUE);
+        parallel = new Playlist(songs);
+        parallel.setParallelThreshold(1);
+        assertSame(songs[96], serial.findMostPopular()); // first song rated 96
+        assertSame(songs[96], parallel.findMostPopular());
+    }
+
+    @Test
+    void songEditsReachBuiltIndexes() {
+        Song a = new Song("A", "Queen", "Opera", 3, "Rock", new String[]{"drums", "live", null});
+        Song b = song("B", 4);
+        Playlist p = new Playlist(new Song[]{a, b, a}); // a is stored twice
+        assertEquals(2, p.findByArtist("queen").length); // builds the indexes
+        assertEquals(1, p.relatedTags("drums", 5).length);
+
+        a.setArtist("Abba");
+        a.setGenre("Pop");
+        assertEquals(0, p.findByArtist("Queen").length);
+        assertArrayEquals(new Song[]{a, a}, p.findByArtist("ABBA"));
+        assertArrayEquals(new Song[]{a, a}, p.findByGenre("pop"));
+
+        a.addTag("synth");
+        assertEquals(List.of("live", "synth"), Arrays.asList(p.relatedTags("drums", 5)));
+        a.setRating(9);
+        assertSame(a, p.findMostPopular());
+        assertSame(a, p.findSong("A", "Abba", "Opera"));
+    }
+}
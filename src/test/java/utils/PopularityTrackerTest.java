@@ -0,0 +1,80 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PopularityTrackerTest {
+    private static final double NO_DECAY = 1e9; // half-life in seconds: weights stay ~1 during a test
+
+    private static Song[] songs(int n) {
+        Song[] songs = new Song[n];
+        for (int i = 0; i < n; i++) {
+            songs[i] = new Song("T" + i, "Artist", "Album", 3, "Rock", new String[]{"drums"});
+        }
+        return songs;
+    }
+
+    @Test
+    void concurrentPlaysAreAllCountedAndRanked() throws InterruptedException {
+        Song[] songs = songs(50);
+        PopularityTracker tracker = new PopularityTracker(5, NO_DECAY);
+        for (Song s : songs) {
+            tracker.register(s);
+        }
+        ExecutorService players = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            players.execute(() -> {
+                for (int i = 0; i < songs.length; i++) {
+                    for (int p = 0; p < i; p++) { // song i gets i plays from every thread
+                        tracker.recordPlay(songs[i], 1);
+                    }
+                }
+            });
+        }
+        players.shutdown();
+        assertTrue(players.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int i = 0; i < songs.length; i++) {
+            assertEquals(8L * i, tracker.playCount(songs[i]));
+        }
+        assertArrayEquals(new Song[]{songs[49], songs[48], songs[47], songs[46], songs[45]}, tracker.top(5));
+        assertEquals(3, tracker.top(3).length);
+        assertEquals(8 * 49, tracker.popularity(songs[49]), 1e-3);
+    }
+
+    @Test
+    void unknownSongsAreIgnored() {
+        PopularityTracker tracker = new PopularityTracker(3, NO_DECAY);
+        Song stranger = songs(1)[0];
+        assertFalse(tracker.recordPlay(stranger, 1));
+        assertEquals(0, tracker.playCount(stranger));
+        assertEquals(0, tracker.top(3).length);
+    }
+
+    @Test
+    void recentPlaysOvertakeOldOnesAcrossEpochs() throws InterruptedException {
+        Song[] songs = songs(2);
+        PopularityTracker tracker = new PopularityTracker(1, 0.001); // 1 ms half-life: new epochs every ~0.2 s
+        tracker.register(songs[0]);
+        tracker.register(songs[1]);
+        tracker.recordPlay(songs[0], 1000);
+        assertSame(songs[0], tracker.top(1)[0]);
+
+        Thread.sleep(500); // songs[0] has decayed to nothing, and the landmark has moved on
+        tracker.recordPlay(songs[1], 1);
+        assertSame(songs[1], tracker.top(1)[0]);
+        double score = tracker.popularity(songs[1]);
+        assertTrue(score > 0 && score <= 1, "score " + score);
+        assertEquals(1000, tracker.playCount(songs[0]));
+    }
+}
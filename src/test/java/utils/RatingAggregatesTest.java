@@ -0,0 +1,90 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RatingAggregatesTest {
+
+    private static Song song(String title, double rating, String genre, String... tags) {
+        return new Song(title, "Artist", "Album", rating, genre, tags);
+    }
+
+    @Test
+    void histogramBucketEdges() {
+        Playlist p = new Playlist(new Song[]{
+                song("Low", -3, "Rock"), // below min: first bucket
+                song("Min", 0, "Rock"), // lower edge of the first bucket
+                song("Edge", 1, "Rock"), // lower edge of the second bucket
+                song("Inner", 4.99, "Rock"),
+                song("Max", 5, "Rock"), // upper bound: last bucket
+                song("High", 9, "Rock"), // above max: last bucket
+                song("NaN", Double.NaN, "Rock"), // not counted
+                null});
+        assertArrayEquals(new int[]{2, 1, 0, 0, 3}, p.ratingHistogram(5, 0, 5));
+        assertArrayEquals(new int[]{3, 3}, p.ratingHistogram(2, 0, 5)); // 2.5 splits them
+        assertArrayEquals(new int[]{2, 1, 0, 0, 0, 3}, p.ratingHistogram(6, 0, 5)); // 4.99 rounds into the last one
+        assertThrows(IllegalArgumentException.class, () -> p.ratingHistogram(0, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> p.ratingHistogram(3, 5, 5));
+        assertThrows(IllegalArgumentException.class, () -> p.ratingHistogram(3, 0, Double.NaN));
+    }
+
+    @Test
+    void averagesSkipUnratedSongsAndGroupByCase() {
+        Playlist p = new Playlist(new Song[]{
+                song("A", 2, "Rock", "Live", "drums"),
+                song("B", 4, "ROCK", "live", null),
+                song("C", Double.NaN, "rock", "live", "unrated"), // NaN: counted nowhere
+                song("D", 1, null, "DRUMS"), // no genre: only in the tag averages
+                null});
+
+        Map<String, Double> byGenre = p.averageRatingByGenre();
+        assertEquals(1, byGenre.size());
+        assertEquals(3.0, byGenre.get("rock"), 0);
+        assertEquals("Rock", byGenre.keySet().iterator().next()); // spelled as first seen
+
+        Map<String, Double> byTag = p.averageRatingByTag();
+        assertEquals(List.of("drums", "Live"), List.copyOf(byTag.keySet())); // case-insensitive order
+        assertEquals(3.0, byTag.get("LIVE"), 0);
+        assertEquals(1.5, byTag.get("Drums"), 0);
+        assertFalse(byTag.containsKey("unrated"));
+
+        RatingStats stats = p.ratingStats();
+        assertEquals(3, stats.getCount());
+        assertEquals(1, stats.getMin(), 0);
+        assertEquals(4, stats.getMax(), 0);
+    }
+
+    @Test
+    void aggregatesFollowEditsToStoredSongs() {
+        Song a = song("A", 2, "Rock", "live");
+        Song b = song("B", 4, "Rock", "live");
+        Song c = song("C", Double.NaN, "Jazz", "sax");
+        Playlist p = new Playlist(new Song[]{a, b, c});
+        assertEquals(3.0, p.averageRatingByGenre().get("rock"), 0);
+        assertFalse(p.averageRatingByGenre().containsKey("jazz"));
+
+        a.setRating(5);
+        b.setGenre("jazz");
+        c.setRating(1);
+        c.addTag("live");
+
+        Map<String, Double> byGenre = p.averageRatingByGenre();
+        assertEquals(5.0, byGenre.get("Rock"), 0);
+        assertEquals(2.5, byGenre.get("JAZZ"), 0);
+        assertEquals(10 / 3.0, p.averageRatingByTag().get("live"), 1e-12);
+        assertEquals(1.0, p.averageRatingByTag().get("sax"), 0);
+        assertArrayEquals(new int[]{1, 0, 0, 1, 1}, p.ratingHistogram(5, 1, 5));
+
+        c.setRating(Double.NaN); // back to unrated
+        assertArrayEquals(new int[]{0, 0, 0, 1, 1}, p.ratingHistogram(5, 1, 5));
+        assertEquals(4.0, p.averageRatingByGenre().get("jazz"), 0);
+    }
+}
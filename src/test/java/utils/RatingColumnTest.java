@@ -0,0 +1,100 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RatingColumnTest {
+    private static final int N = 3 * RatingColumn.CHUNK_SIZE + 100;
+
+    private static RatingColumn filled(int size) {
+        RatingColumn column = new RatingColumn(size);
+        for (int i = 0; i < size; i++) {
+            column.set(i, i);
+        }
+        return column;
+    }
+
+    @Test
+    void publishedSpinesNeverChange() {
+        RatingColumn column = filled(N);
+        double[][] first = column.publish(N);
+        column.set(5, -1);
+        column.set(6, -2); // same chunk: copied once per publish
+        column.set(N - 1, -3);
+        double[][] second = column.publish(N);
+
+        for (int i = 0; i < N; i++) {
+            assertEquals(i, RatingColumn.get(first, i), 0);
+        }
+        assertEquals(-1, RatingColumn.get(second, 5), 0);
+        assertEquals(-2, RatingColumn.get(second, 6), 0);
+        assertEquals(-3, RatingColumn.get(second, N - 1), 0);
+        assertNotSame(first[0], second[0]); // the written chunks were copied
+        assertNotSame(first[3], second[3]);
+        assertSame(first[1], second[1]); // untouched chunks are shared
+        assertSame(first[2], second[2]);
+    }
+
+    @Test
+    void appendsAndGrowthLeaveEarlierVersionsAlone() {
+        RatingColumn column = filled(10);
+        double[][] small = column.publish(10);
+        column.ensureCapacity(N);
+        for (int i = 10; i < N; i++) {
+            column.set(i, i); // past the published size: in place
+        }
+        column.set(0, 42);
+        double[][] large = column.publish(N);
+
+        assertEquals(0, RatingColumn.get(small, 0), 0);
+        assertEquals(9, RatingColumn.get(small, 9), 0);
+        assertEquals(42, RatingColumn.get(large, 0), 0);
+        assertEquals(N - 1, RatingColumn.get(large, N - 1), 0);
+
+        double[] expected = new double[N];
+        for (int i = 0; i < N; i++) {
+            expected[i] = i;
+        }
+        expected[0] = 42;
+        assertArrayEquals(expected, column.toArray(N), 0);
+        assertArrayEquals(expected, new RatingColumn(expected, N, N + 5).toArray(N), 0);
+    }
+
+    @Test
+    void ratingEditsDoNotCopyTheWholeColumn() {
+        int size = 250_000; // a 2 MB column
+        Song[] songs = new Song[size];
+        String[] tags = {"drums"};
+        for (int i = 0; i < size; i++) {
+            songs[i] = new Song("T" + i, "Artist", "Album", i % 5, "Rock", tags);
+        }
+        Playlist p = new Playlist(songs);
+        songs[0].setRating(4); // first edit builds the slot map
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int edits = 500;
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int e = 0; e < edits; e++) {
+            songs[(e * 7919) % size].setRating(e % 5);
+        }
+        long perEdit = (threads.getThreadAllocatedBytes(thread) - before) / edits;
+
+        // one 32 KB chunk plus a small spine, far from the 2 MB a full copy would take
+        assertTrue(perEdit < 64 * 1024, "allocated " + perEdit + " bytes per edit");
+        double total = 0;
+        for (Song s : songs) {
+            total += s.getRating();
+        }
+        assertEquals(total / size, p.ratingStats().getMean(), 1e-9); // the column followed every edit
+        assertEquals(size, p.ratingStats().getCount());
+    }
+}
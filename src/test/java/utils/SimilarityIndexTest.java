@@ -0,0 +1,91 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarityIndexTest {
+
+    private static Song song(String title, String genre, String... tags) {
+        return new Song(title, "Artist", "Album", 3, genre, tags);
+    }
+
+    @Test
+    void ranksByJaccardThenGenreThenIndexOrder() {
+        SimilarityIndex index = new SimilarityIndex();
+        Song query = song("Q", "Rock", "a", "b", "c", "d");
+        Song half = song("H", "Pop", "a", "b", "x", "y");
+        Song sameOtherGenre = song("S1", "Pop", "a", "b", "c", "d");
+        Song sameRock = song("S2", "Rock", "a", "b", "c", "d");
+        for (Song s : new Song[]{query, half, sameOtherGenre, sameRock}) {
+            index.addSong(s);
+        }
+        Song[] result = index.similarTo(query, 3);
+        assertSame(sameRock, result[0]);
+        assertSame(sameOtherGenre, result[1]);
+        assertFalse(Arrays.asList(result).contains(query));
+    }
+
+    @Test
+    void identicalTagSetsAreSampledNotOldestFirst() {
+        SimilarityIndex index = new SimilarityIndex();
+        Song[] songs = new Song[20_000];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = song("T" + i, "Rock", "same", "tags");
+            index.addSong(songs[i]);
+        }
+        Song[] result = index.similarTo(songs[0], 100_000);
+        assertTrue(result.length <= 8 * SimilarityIndex.BUCKET_CAPACITY, "compared " + result.length + " songs");
+        List<Song> all = Arrays.asList(songs);
+        int late = 0;
+        for (Song s : result) {
+            if (all.indexOf(s) >= songs.length / 2) late++;
+        }
+        assertTrue(late > result.length / 4, late + " of " + result.length + " candidates from the newer half");
+    }
+
+    @Test
+    void tagChangesMoveSongsBetweenBuckets() {
+        Playlist playlist = new Playlist(new Song[0]);
+        Song query = song("Q", "Rock", "jazz", "piano");
+        Song other = song("O", "Rock", "jazz", "piano", "zzz");
+        playlist.addSong(query);
+        playlist.addSong(other);
+
+        other.setTagCount(0); // no tags: out of every bucket
+        assertEquals(0, playlist.findSimilar(query, 5).length);
+        other.setTagCount(2); // now exactly the query's tags: signature recomputed, same buckets
+        assertArrayEquals(new Song[]{other}, playlist.findSimilar(query, 5));
+
+        Song added = song("A", "Rock", "jazz");
+        playlist.addSong(added);
+        added.addTag("piano"); // folded into the signature: identical to the query too
+        assertEquals(List.of(other, added), Arrays.asList(playlist.findSimilar(query, 5)));
+    }
+
+    @Test
+    void removalsFromLargeBucketsKeepItConsistent() {
+        SimilarityIndex index = new SimilarityIndex();
+        Song[] songs = new Song[5000];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = song("T" + i, "Rock", "same");
+            index.addSong(songs[i]);
+        }
+        for (int i = 1; i < songs.length; i++) { // empty everyone's tags but the query's
+            songs[i].setTagCount(0);
+            index.tagsReset(songs[i]);
+        }
+        assertEquals(0, index.similarTo(songs[0], 10).length);
+        Song late = song("Late", "Rock", "same");
+        index.addSong(late);
+        assertArrayEquals(new Song[]{late}, index.similarTo(songs[0], 10));
+    }
+}
@@ -0,0 +1,87 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SongFieldIndexTest {
+
+    private static Song song(String title, String artist) {
+        return new Song(title, artist, "Album", 3, "Rock", new String[]{"drums"});
+    }
+
+    /**
+     * Lookups come back in no particular order, so both sides are compared sorted by title.
+     */
+    private static void assertSameSongs(Song[] expected, Song[] actual) {
+        Comparator<Song> byTitle = Comparator.comparing(Song::getTitle);
+        Song[] e = expected.clone();
+        Song[] a = actual.clone();
+        Arrays.sort(e, byTitle);
+        Arrays.sort(a, byTitle);
+        assertArrayEquals(e, a);
+    }
+
+    @Test
+    void lookupIgnoresCase() {
+        SongFieldIndex index = new SongFieldIndex();
+        Song a = song("A", "Queen");
+        Song b = song("B", "QUEEN");
+        Song c = song("C", "Abba");
+        index.add(a.getArtist(), a);
+        index.add(c.getArtist(), c);
+        index.add(b.getArtist(), b);
+        assertSameSongs(new Song[]{a, b}, index.lookup("queen"));
+        assertArrayEquals(new Song[]{c}, index.lookup("ABBA"));
+        assertEquals(0, index.lookup(null).length);
+    }
+
+    @Test
+    void moveTakesEveryOccurrenceAlong() {
+        SongFieldIndex index = new SongFieldIndex();
+        Song a = song("A", "Queen");
+        Song b = song("B", "Queen");
+        index.add("Queen", a);
+        index.add("Queen", b);
+        index.add("Queen", a); // stored twice in the playlist
+
+        a.setArtist("Abba");
+        index.move(a.getArtist(), a);
+        assertArrayEquals(new Song[]{b}, index.lookup("Queen"));
+        assertArrayEquals(new Song[]{a, a}, index.lookup("Abba"));
+
+        b.setArtist(null);
+        index.move(null, b);
+        assertEquals(0, index.lookup("Queen").length);
+        b.setArtist("abba");
+        index.move(b.getArtist(), b); // back from the null bucket
+        assertSameSongs(new Song[]{a, a, b}, index.lookup("ABBA"));
+    }
+
+    @Test
+    void movingOutOfALargeBucketKeepsTheRest() {
+        SongFieldIndex index = new SongFieldIndex();
+        Song[] songs = new Song[100_000];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = song("T" + i, "Same");
+            index.add("Same", songs[i]);
+        }
+        // would be quadratic with a list remove per move
+        for (int i = 0; i < songs.length; i += 2) {
+            index.move("Other", songs[i]);
+        }
+        Song[] same = new Song[songs.length / 2];
+        Song[] other = new Song[songs.length / 2];
+        for (int i = 0; i < same.length; i++) {
+            same[i] = songs[2 * i + 1];
+            other[i] = songs[2 * i];
+        }
+        assertSameSongs(same, index.lookup("same"));
+        assertSameSongs(other, index.lookup("other"));
+    }
+}
@@ -0,0 +1,111 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SongFileAnalyticsTest {
+    @TempDir
+    Path dir;
+
+    private Path write(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String randomSongs(Random random, int count) {
+        String[] tags = {"rock", "Rock", " drums ", "bass", "Ölig", "", "synth"};
+        String[] genres = {"Pop", "pop", "Punk rock", "Jazz"};
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(20) == 0) out.append("malformed line\n");
+            out.append("T").append(i).append("%%A%%Al%%").append(random.nextInt(6)).append("%%")
+                    .append(genres[random.nextInt(genres.length)]).append("%%");
+            int n = 1 + random.nextInt(3);
+            for (int t = 0; t < n; t++) {
+                if (t > 0) out.append("~~");
+                out.append(tags[random.nextInt(tags.length)]);
+            }
+            out.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return out.toString();
+    }
+
+    /**
+     * The same aggregates computed the slow way, from parsed Songs.
+     */
+    private static void assertMatchesSongs(SongFileAnalytics.Report report, Path... files) {
+        long songs = 0;
+        long[] histogram = new long[SongFileAnalytics.DEFAULT_BUCKETS];
+        Map<String, Long> tags = new LinkedHashMap<>();
+        Map<String, Long> genres = new LinkedHashMap<>();
+        for (Path f : files) {
+            for (Song s : SongFileUtils.readSongFile(f.toString())) {
+                songs++;
+                histogram[Math.min(histogram.length - 1, (int) s.getRating())]++;
+                genres.merge(s.getGenre().toLowerCase(), 1L, Long::sum);
+                for (int t = 0; t < s.getTagCount(); t++) {
+                    tags.merge(s.getTags()[t].toLowerCase(), 1L, Long::sum);
+                }
+            }
+        }
+        assertEquals(songs, report.getSongs());
+        assertArrayEquals(histogram, report.getRatingHistogram());
+        assertEquals(tags, lowerCased(report.getTagCounts()));
+        assertEquals(genres, lowerCased(report.getSongsPerGenre()));
+    }
+
+    private static Map<String, Long> lowerCased(Map<String, Long> counts) {
+        Map<String, Long> lower = new LinkedHashMap<>();
+        counts.forEach((k, v) -> lower.merge(k.toLowerCase(), v, Long::sum));
+        return lower;
+    }
+
+    @Test
+    void countsMatchParsedSongs() throws IOException {
+        Path file = write("songs.txt", randomSongs(new Random(1), 500));
+        SongFileAnalytics.Report report = SongFileAnalytics.analyze(List.of(file));
+        assertMatchesSongs(report, file);
+        assertEquals(report.getLines() - report.getSongs(), report.getMalformed());
+    }
+
+    @Test
+    void tinyRangesGiveTheSameReport() throws IOException {
+        Path a = write("a.txt", randomSongs(new Random(2), 300));
+        Path b = write("b.txt", randomSongs(new Random(3), 200) + "Last%%A%%Al%%4%%Pop%%x~~X~~ y "); // no final newline
+        SongFileAnalytics.Report whole = SongFileAnalytics.analyze(List.of(a, b));
+        assertMatchesSongs(whole, a, b);
+        for (long rangeSize : new long[]{1, 2, 3, 7, 64, 1000}) {
+            SongFileAnalytics.Report split = SongFileAnalytics.analyze(List.of(a, b), 5, 0, 5, rangeSize);
+            assertEquals(whole.getLines(), split.getLines(), "range size " + rangeSize);
+            assertEquals(whole.getSongs(), split.getSongs());
+            assertArrayEquals(whole.getRatingHistogram(), split.getRatingHistogram());
+            assertEquals(whole.getTagCounts(), split.getTagCounts()); // same spellings, same order
+            assertEquals(List.copyOf(whole.getTagCounts().keySet()), List.copyOf(split.getTagCounts().keySet()));
+            assertEquals(whole.getSongsPerGenre(), split.getSongsPerGenre());
+        }
+    }
+
+    @Test
+    void keepsFirstSpellingAndCountsRepeatsOncePerSong() throws IOException {
+        Path file = write("songs.txt", "A%%X%%Al%%1%%Pop%%Rock~~ROCK~~ rock ~~~~drums\nB%%X%%Al%%2%%POP%%rock\n");
+        SongFileAnalytics.Report report = SongFileAnalytics.analyze(List.of(file));
+        assertEquals(Map.of("Rock", 2L, "drums", 1L), report.getTagCounts());
+        assertEquals(Map.of("Pop", 2L), report.getSongsPerGenre());
+        assertArrayEquals(new String[]{"Rock"}, report.topTags(1));
+        assertEquals(1.5, report.getRatingStats().getMean(), 0);
+    }
+}
@@ -0,0 +1,149 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SongIngestPipelineTest {
+    @TempDir
+    Path dir;
+
+    private Path songFile(int lines) throws IOException {
+        ArrayList<String> out = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            out.add("Title" + i + "%%Artist" + (i % 7) + "%%Album%%" + (i % 5) + "%%Rock%%drums~~t" + (i % 3));
+        }
+        Path file = dir.resolve("songs.txt");
+        Files.write(file, out, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void mergesEverySongInFileOrder() throws IOException {
+        Path file = songFile(5000);
+        Playlist playlist = new Playlist(new Song[0]);
+        SongIngestPipeline pipeline = new SongIngestPipeline(playlist, 4, 2, 64);
+        SongIngestPipeline.Progress progress = pipeline.run(file.toString());
+
+        assertEquals(5000, progress.getCommitted());
+        Song[] songs = playlist.getAllSongs();
+        assertEquals(5000, songs.length);
+        for (int i = 0; i < songs.length; i++) {
+            assertEquals("Title" + i, songs[i].getTitle());
+        }
+    }
+
+    @Test
+    void skipsDuplicatesAndMalformedLines() throws IOException {
+        Path file = dir.resolve("mixed.txt");
+        Files.write(file, java.util.List.of(
+                "A%%X%%Al%%1%%Rock%%t", "not a song", "A%%X%%Al%%1%%Rock%%t", "B%%X%%Al%%2%%Rock%%t"), StandardCharsets.UTF_8);
+        Playlist playlist = new Playlist(new Song[0]);
+        SongIngestPipeline.Progress progress = new SongIngestPipeline(playlist, 2, 1, 1).run(file.toString());
+        assertEquals(2, progress.getCommitted());
+        assertEquals(1, progress.getDuplicates());
+        assertEquals(1, progress.getMalformed());
+    }
+
+    @Test
+    void skipsSongsAlreadyInThePlaylistAndRepeatsWithinABatch() throws IOException {
+        Path file = dir.resolve("repeats.txt");
+        Files.write(file, java.util.List.of(
+                "A%%X%%Al%%1%%Rock%%t", "B%%X%%Al%%2%%Rock%%t", "B%%X%%Al%%3%%Rock%%t", "C%%X%%Al%%4%%Rock%%t",
+                "C%%X%%Al%%5%%Rock%%t"), StandardCharsets.UTF_8);
+        Song existing = new Song("A", "X", "Al", 9, "Jazz", new String[0]);
+        Playlist playlist = new Playlist(new Song[]{existing});
+        SongIngestPipeline.Progress progress = new SongIngestPipeline(playlist, 2, 1, 4).run(file.toString());
+
+        assertEquals(2, progress.getCommitted());
+        assertEquals(3, progress.getDuplicates()); // A was there before, B and C repeat inside the first batch
+        Song[] songs = playlist.getAllSongs();
+        assertEquals(3, songs.length);
+        assertSame(existing, songs[0]);
+        assertEquals(2, songs[1].getRating(), 0); // the first copy in the file wins
+        assertEquals(4, songs[2].getRating(), 0);
+    }
+
+    @Test
+    void stalledParserBoundsChunksInFlight() throws Exception {
+        int parsers = 3;
+        int queueCapacity = 2;
+        int batchSize = 10;
+        Path file = songFile(10_000);
+        Playlist playlist = new Playlist(new Song[0]);
+        SongIngestPipeline pipeline = new SongIngestPipeline(playlist, parsers, queueCapacity, batchSize);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger parsed = new AtomicInteger();
+        pipeline.setLineParser(line -> {
+            if (line.startsWith("Title0%%")) { // the first chunk stalls; everything after it waits to commit
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            parsed.incrementAndGet();
+            return SongFileUtils.parseSongLine(line);
+        });
+
+        ExecutorService runner = Executors.newSingleThreadExecutor();
+        try {
+            Future<SongIngestPipeline.Progress> result = runner.submit(() -> pipeline.run(file.toString()));
+            Thread.sleep(500); // give the other parsers time to run ahead
+            int maxChunks = 2 * queueCapacity + parsers;
+            assertTrue(parsed.get() <= maxChunks * batchSize, "parsed " + parsed.get() + " lines ahead of a stalled chunk");
+            release.countDown();
+            assertEquals(10_000, result.get(30, TimeUnit.SECONDS).getCommitted());
+        } finally {
+            release.countDown();
+            runner.shutdownNow();
+        }
+    }
+
+    @Test
+    void parseFailureStopsCommitting() throws IOException {
+        Path file = songFile(5000);
+        Playlist playlist = new Playlist(new Song[0]);
+        SongIngestPipeline pipeline = new SongIngestPipeline(playlist, 4, 2, 100);
+        pipeline.setLineParser(line -> {
+            if (line.startsWith("Title3000%%")) throw new IllegalStateException("bad line");
+            return SongFileUtils.parseSongLine(line);
+        });
+
+        IOException e = assertThrows(IOException.class, () -> pipeline.run(file.toString()));
+        int added = playlist.getAllSongs().length;
+        assertTrue(added <= 3000, "committed " + added + " songs past the failed chunk");
+        if (added > 0) assertTrue(e.getMessage().contains(added + " songs were added"), e.getMessage());
+    }
+
+    @Test
+    void failureInFirstChunkAddsNothing() throws IOException {
+        Path file = songFile(1000);
+        Playlist playlist = new Playlist(new Song[0]);
+        SongIngestPipeline pipeline = new SongIngestPipeline(playlist, 2, 2, 100);
+        pipeline.setLineParser(line -> {
+            if (line.startsWith("Title5%%")) throw new IllegalStateException("bad line");
+            return SongFileUtils.parseSongLine(line);
+        });
+
+        assertThrows(IOException.class, () -> pipeline.run(file.toString()));
+        assertEquals(0, playlist.getAllSongs().length);
+    }
+}
@@ -0,0 +1,112 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SongQueueTest {
+
+    private static Song song(String title, String artist, double rating, String... tags) {
+        return new Song(title, artist, "Album", rating, "Rock", tags);
+    }
+
+    private static ArrayList<Song> drain(SongQueue queue) {
+        ArrayList<Song> played = new ArrayList<>();
+        while (queue.hasNext()) {
+            played.add(queue.next());
+        }
+        return played;
+    }
+
+    private static Playlist library(int artists, int songsPerArtist) {
+        Song[] songs = new Song[artists * songsPerArtist];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = song("T" + i, "Artist" + (i % artists), 1 + i % 5, i % 2 == 0 ? "even" : "odd");
+        }
+        return new Playlist(songs);
+    }
+
+    @Test
+    void playsEverySongExactlyOnce() {
+        Playlist p = library(13, 40);
+        SongQueue queue = p.queue(null, 4, 7);
+        ArrayList<Song> played = drain(queue);
+        assertEquals(p.getAllSongs().length, played.size());
+        IdentityHashMap<Song, Boolean> seen = new IdentityHashMap<>();
+        for (Song s : played) {
+            assertTrue(seen.put(s, Boolean.TRUE) == null, "played twice: " + s.getTitle());
+        }
+        assertEquals(0, queue.remaining());
+        assertThrows(NoSuchElementException.class, queue::next);
+    }
+
+    @Test
+    void keepsArtistsApartWhileOthersAreAvailable() {
+        int gap = 5;
+        ArrayList<Song> played = drain(library(10, 30).queue(null, gap, 11));
+        for (int j = 1; j < played.size(); j++) {
+            HashSet<String> window = new HashSet<>();
+            for (int i = Math.max(0, j - gap); i < j; i++) {
+                window.add(played.get(i).getArtist());
+            }
+            if (!window.contains(played.get(j).getArtist())) continue;
+            // an artist may only come back early when every artist with songs left is held back
+            for (int k = j; k < played.size(); k++) {
+                assertTrue(window.contains(played.get(k).getArtist()), "artist repeated early at " + j);
+            }
+        }
+    }
+
+    @Test
+    void letsAnArtistThroughEarlyRatherThanStopping() {
+        Song a = song("A1", "Solo", 3);
+        Song b = song("A2", "solo", 3); // same artist, other case
+        ArrayList<Song> played = drain(new Playlist(new Song[]{a, b}).queue(null, 3, 1));
+        assertEquals(2, played.size());
+    }
+
+    @Test
+    void drawsProportionallyToRating() {
+        Song low = song("Low", "X", 1);
+        Song high = song("High", "Y", 3);
+        Song unrated = song("None", "Z", Double.NaN); // counts as MIN_WEIGHT
+        Playlist p = new Playlist(new Song[]{low, high, unrated});
+        int highFirst = 0;
+        int unratedFirst = 0;
+        int runs = 20_000;
+        Random seeds = new Random(5); // unrelated seeds: java.util.Random's first draws follow consecutive seeds
+        for (int run = 0; run < runs; run++) {
+            Song first = p.queue(null, 0, seeds.nextLong()).next();
+            if (first == high) highFirst++;
+            if (first == unrated) unratedFirst++;
+        }
+        assertEquals(3 / 4.1, highFirst / (double) runs, 0.02);
+        assertEquals(0.1 / 4.1, unratedFirst / (double) runs, 0.01);
+    }
+
+    @Test
+    void filtersByTagAndRepeatsForTheSameSeed() {
+        Playlist p = library(7, 20);
+        ArrayList<Song> first = drain(p.queue("EVEN", 2, 42));
+        assertEquals(70, first.size());
+        for (Song s : first) {
+            assertTrue(s.containsTag("even"));
+        }
+        ArrayList<Song> again = drain(p.queue("even", 2, 42));
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), again.get(i));
+        }
+        assertFalse(p.queue("missing", 2, 42).hasNext());
+    }
+}
@@ -0,0 +1,86 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SongRendererTest {
+
+    /**
+     * Appendable that counts how often it is written to.
+     */
+    private static final class CountingOutput implements Appendable {
+        private final StringBuilder text = new StringBuilder();
+        private int writes;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            writes++;
+            text.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            writes++;
+            text.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            writes++;
+            text.append(c);
+            return this;
+        }
+    }
+
+    private static Song[] songs(int n) {
+        Song[] songs = new Song[n];
+        for (int i = 0; i < n; i++) {
+            songs[i] = new Song("Title " + i, "Artist", "Album", 3.5, "Rock", new String[]{"drums", "live"});
+        }
+        return songs;
+    }
+
+    @Test
+    void numberedBlocksMatchLineByLinePrinting() throws IOException {
+        Song[] songs = songs(3);
+        songs[1] = null;
+        CountingOutput out = new CountingOutput();
+        SongRenderer.renderNumbered(out, songs, "Song #");
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < songs.length; i++) {
+            expected.append("Song #").append(i + 1).append('\n')
+                    .append(songs[i] == null ? "(null)" : songs[i].format()).append('\n')
+                    .append(SongRenderer.SEPARATOR).append('\n');
+        }
+        assertEquals(expected.toString(), out.text.toString());
+        assertEquals(1, out.writes);
+    }
+
+    @Test
+    void largeResultSetsAreWrittenInFewChunks() throws IOException {
+        Song[] songs = songs(20_000);
+        CountingOutput out = new CountingOutput();
+        SongRenderer.renderNumbered(out, songs, 10_000, "#");
+        assertTrue(out.writes > 1 && out.writes < 100, "writes: " + out.writes);
+        assertTrue(out.text.toString().endsWith("#10000\n" + songs[9999].format() + "\n" + SongRenderer.SEPARATOR + "\n"));
+
+        CountingOutput none = new CountingOutput();
+        SongRenderer.renderNumbered(none, songs, 0, "#");
+        assertEquals(0, none.writes);
+    }
+
+    @Test
+    void listsOneItemPerLine() throws IOException {
+        CountingOutput out = new CountingOutput();
+        SongRenderer.renderList(out, new String[]{"drums", "live"}, "- ");
+        assertEquals("- drums\n- live\n", out.text.toString());
+    }
+}
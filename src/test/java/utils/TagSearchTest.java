@@ -0,0 +1,113 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagSearchTest {
+    private static final String[] TAGS = {"drums", "Guitar", "live", "synth", "sax", "bass", "Drums "};
+
+    /**
+     * Random songs with a null slot every 50, in serial and parallel playlists over the same songs.
+     */
+    private static Playlist[] playlists(int n) {
+        Random random = new Random(35);
+        Song[] songs = new Song[n];
+        for (int i = 0; i < n; i++) {
+            if (i % 50 == 49) continue;
+            String[] tags = new String[random.nextInt(4)];
+            for (int t = 0; t < tags.length; t++) {
+                tags[t] = TAGS[random.nextInt(TAGS.length)];
+            }
+            songs[i] = new Song("T" + i, "A", "B", 3, "Rock", tags);
+        }
+        Playlist serial = new Playlist(songs);
+        serial.setParallelThreshold(Integer.MAX_VALUE);
+        Playlist parallel = new Playlist(songs);
+        parallel.setParallelThreshold(1);
+        return new Playlist[]{serial, parallel};
+    }
+
+    @Test
+    void parallelScansMatchTheSerialOnes() {
+        Playlist[] p = playlists(20_000);
+        for (String tag : new String[]{"drums", " GUITAR ", "missing", ""}) {
+            assertArrayEquals(p[0].searchByTag(tag), p[1].searchByTag(tag), tag);
+        }
+        assertArrayEquals(p[0].getAllTags(), p[1].getAllTags()); // same spelling, same first-seen order
+        assertEquals(6, p[0].getAllTags().length);
+    }
+
+    @Test
+    void bufferConsumerAndVisitorSeeTheSameMatches() {
+        Playlist p = playlists(2_000)[0];
+        Song[] expected = p.searchByTag("live");
+
+        Song[] small = new Song[3];
+        assertEquals(expected.length, p.searchByTag(" LIVE", small)); // keeps counting past the buffer
+        assertArrayEquals(new Song[]{expected[0], expected[1], expected[2]}, small);
+
+        ArrayList<Song> pushed = new ArrayList<>();
+        p.forEachByTag("live", pushed::add);
+        assertArrayEquals(expected, pushed.toArray(new Song[0]));
+
+        ArrayList<Song> visited = new ArrayList<>();
+        assertEquals(5, p.scanByTag("live", s -> visited.add(s) && visited.size() < 5));
+        assertSame(expected[4], visited.get(4));
+
+        assertEquals(0, p.searchByTag(null, small));
+        assertEquals(0, p.searchByTag("missing").length);
+    }
+
+    /**
+     * Bytes the current thread allocates while running action the given number of times.
+     */
+    private static long allocatedBy(Runnable action, int times) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < times; i++) {
+            action.run();
+        }
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    @Test
+    void bufferAndConsumerSearchesDoNotAllocate() {
+        Playlist p = playlists(5_000)[0]; // serial path: the fork/join scan allocates its tasks
+        Song[] buffer = new Song[64];
+        int[] seen = new int[1];
+        Consumer<Song> counter = s -> seen[0]++;
+        Runnable bufferSearch = () -> p.searchByTag("Drums", buffer); // already trimmed: no copy
+        Runnable consumerSearch = () -> p.forEachByTag("drums", counter);
+        Runnable miss = () -> p.searchByTag("missing");
+        for (int i = 0; i < 2_000; i++) { // warm up so the JIT has compiled the loops
+            bufferSearch.run();
+            consumerSearch.run();
+            miss.run();
+        }
+
+        int calls = 1_000;
+        long buffered = allocatedBy(bufferSearch, calls);
+        long consumed = allocatedBy(consumerSearch, calls);
+        long missed = allocatedBy(miss, calls);
+        // a handful of bytes of measurement noise in total, nowhere near one per call
+        assertTrue(buffered < calls, "searchByTag(tag, out) allocated " + buffered + " bytes in " + calls + " calls");
+        assertTrue(consumed < calls, "forEachByTag allocated " + consumed + " bytes in " + calls + " calls");
+        assertTrue(missed < calls, "a missed searchByTag allocated " + missed + " bytes in " + calls + " calls");
+        assertTrue(seen[0] > 0);
+
+        // A padded query costs one trimmed copy per call, not one per song
+        long padded = allocatedBy(() -> p.searchByTag("  drums ", buffer), calls);
+        assertTrue(padded < 128L * calls, "a padded query allocated " + padded + " bytes in " + calls + " calls");
+    }
+}
@@ -0,0 +1,72 @@
+package utils;
+
+import business.Song;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceTest {
+
+    private static Song song(String title) {
+        return new Song(title, "Artist", "Album", 3, "Rock", new String[]{"drums"});
+    }
+
+    @Test
+    void toPlaylistRegistersListenersOnce() {
+        Workspace w = new Workspace();
+        Song a = song("A");
+        w.createPlaylist("mix", new Song[]{a, song("B")});
+        Playlist first = w.toPlaylist("mix");
+        for (int i = 0; i < 1000; i++) {
+            assertSame(first, w.toPlaylist("mix"));
+        }
+        long version = first.getVersion();
+        a.setRating(5);
+        assertEquals(version + 1, first.getVersion()); // one listener, one publish
+        assertSame(a, first.findMostPopular());
+    }
+
+    @Test
+    void toPlaylistPicksUpAddedSongs() {
+        Workspace w = new Workspace();
+        SongRefList list = w.createPlaylist("mix", new Song[]{song("A")});
+        Playlist p = w.toPlaylist("mix");
+        Song b = song("B");
+        list.add(b);
+        assertSame(p, w.toPlaylist("mix"));
+        assertEquals(2, p.getAllSongs().length);
+        assertSame(b, p.getAllSongs()[1]);
+    }
+
+    @Test
+    void removePlaylistDetachesItsPlaylist() {
+        Workspace w = new Workspace();
+        Song a = song("A");
+        w.createPlaylist("old", new Song[]{a});
+        w.createPlaylist("kept", new Song[]{a});
+        Playlist removed = w.toPlaylist("old");
+        Playlist kept = w.toPlaylist("kept");
+        removed.findByArtist("Artist"); // build the indexes of both
+        kept.findByArtist("Artist");
+        long removedVersion = removed.getVersion();
+        long keptVersion = kept.getVersion();
+
+        assertTrue(w.removePlaylist("old"));
+        assertNull(w.toPlaylist("old"));
+        a.setRating(5);
+        a.setArtist("Someone Else");
+
+        // the removed playlist no longer hears about the shared song
+        assertEquals(removedVersion, removed.getVersion());
+        assertArrayEquals(new Song[]{a}, removed.findByArtist("Artist"));
+        assertEquals(0, removed.findByArtist("Someone Else").length);
+        // the remaining one still does
+        assertEquals(keptVersion + 1, kept.getVersion());
+        assertArrayEquals(new Song[]{a}, kept.findByArtist("Someone Else"));
+        assertEquals(0, kept.findByArtist("Artist").length);
+    }
+}